@@ -0,0 +1,67 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Reports how much heap the tasks of a large database take up in each TaskTable, on their own
+ * and together with the indexes of a TaskList, both once loaded and once they have been listed
+ * (which leaves a snapshot of the list behind until the next change). Heap in use is read after
+ * a full collection, so the figures are estimates; run with a heap large enough for the biggest
+ * table, e.g. './gradlew footprint --args="1000000"'.
+ */
+public class FootprintReport {
+    private static final int DEFAULT_ROWS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        Path database = Files.createTempFile("footprint", ".csv");
+        try {
+            new TaskCsvGenerator().writeCsv(database, rows);
+            System.out.printf("%,d tasks%n", rows);
+            report("array table", database, ArrayTaskTable::new, false);
+            report("columnar table", database, ColumnarTaskTable::new, false);
+            report("array TaskList", database, ArrayTaskTable::new, true);
+            report("columnar TaskList", database, ColumnarTaskTable::new, true);
+        } finally {
+            Files.deleteIfExists(database);
+        }
+    }
+
+    private static void report(String label, Path database, Supplier<TaskTable> tables,
+            boolean isIndexed) throws IOException {
+        CsvStorage storage = new CsvStorage(database.toString());
+        long before = usedHeap();
+        Object retained;
+        if (isIndexed) {
+            retained = new TaskList(storage, tables.get());
+        } else {
+            TaskTable table = tables.get();
+            storage.forEachTask(table::add);
+            retained = table;
+        }
+        print(label, usedHeap() - before, sizeOf(retained));
+        if (retained instanceof TaskList tasklist) {
+            new Parser().executeList(tasklist, new String[] {"list"});
+            print(label + " after list", usedHeap() - before, tasklist.getSize());
+        }
+    }
+
+    private static void print(String label, long used, int tasks) {
+        System.out.printf("%-28s %,8d KB  %,5d bytes/task%n", label, used / 1024, used / Math.max(1, tasks));
+    }
+
+    private static int sizeOf(Object retained) {
+        return retained instanceof TaskList tasklist ? tasklist.getSize() : ((TaskTable) retained).size();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,47 @@
+package blob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage that starts out with the given tasks and discards every change,
+ * so that benchmarks measure parsing and in-memory work without any disk I/O.
+ */
+public class NullStorage implements Storage {
+    private final ArrayList<Task> initialTasks;
+
+    public NullStorage(ArrayList<Task> initialTasks) {
+        this.initialTasks = initialTasks;
+    }
+
+    @Override
+    public ArrayList<Task> getFileContents() {
+        return new ArrayList<>(this.initialTasks);
+    }
+
+    @Override
+    public void forEachTask(Consumer<? super Task> visitor) {
+        this.initialTasks.forEach(visitor);
+    }
+
+    @Override
+    public void updateFileContents(List<? extends Task> database) {
+    }
+
+    @Override
+    public void commit(List<? extends Task> database, Mutation mutation) {
+    }
+
+    @Override
+    public void commitAll(List<? extends Task> database, List<Mutation> mutations) {
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
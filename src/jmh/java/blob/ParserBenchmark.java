@@ -0,0 +1,56 @@
+package blob;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures Parser.evaluateAction for each type of command against a 1000-task list kept in memory.
+ * Commands that grow the list or a task's tags are undone straight after, so the list stays the same size.
+ * The parse benchmark covers only tokenizing the input and looking up its handler, which should sustain
+ * well over a million commands per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+    private static final int SIZE = 1000;
+
+    @Param({"list", "mark 500", "unmark 500", "find quiz", "tag 500 work", "todo read a book",
+        "deadline submit report /by 2099-01-01 10:00",
+        "event project meeting /from 2099-01-01 10:00 /to 2099-01-01 12:00", "due 2099-03-01", "nonsense"})
+    private String command;
+
+    private TaskList tasklist;
+    private Parser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tasklist = new TaskList(new NullStorage(new TaskCsvGenerator().generateTasks(SIZE)));
+        this.parser = new Parser();
+    }
+
+    @Benchmark
+    public Command parse() {
+        return this.parser.getCommand(Parser.tokenize(this.command)[0]);
+    }
+
+    @Benchmark
+    public String evaluateAction() {
+        String reply = this.parser.evaluateAction(null, this.tasklist, this.command);
+        if (this.tasklist.getSize() > SIZE) {
+            this.tasklist.deleteTask(SIZE);
+        } else if (this.command.startsWith("tag")) {
+            this.tasklist.untagTask(499);
+        }
+        return reply;
+    }
+}
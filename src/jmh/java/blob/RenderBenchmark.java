@@ -0,0 +1,64 @@
+package blob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures rendering a single task of each type, with and without tags, both as a new String
+ * and appended into a reused StringBuilder (which should not allocate at all).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderBenchmark {
+    private final Todo todo = new Todo("read a book", false, new ArrayList<>(List.of("fun", "home")));
+    private final Deadline deadline = new Deadline("submit report", true, "2099-01-01T10:00",
+            new ArrayList<>(List.of("work")));
+    private final Event event = new Event("project meeting", false, "2099-01-01T10:00", "2099-01-01T12:00",
+            new ArrayList<String>());
+    private final StringBuilder builder = new StringBuilder(256);
+
+    @Benchmark
+    public String todoToString() {
+        return this.todo.toString();
+    }
+
+    @Benchmark
+    public String deadlineToString() {
+        return this.deadline.toString();
+    }
+
+    @Benchmark
+    public String eventToString() {
+        return this.event.toString();
+    }
+
+    @Benchmark
+    public int todoAppendTo() {
+        this.builder.setLength(0);
+        this.todo.appendTo(this.builder);
+        return this.builder.length();
+    }
+
+    @Benchmark
+    public int deadlineAppendTo() {
+        this.builder.setLength(0);
+        this.deadline.appendTo(this.builder);
+        return this.builder.length();
+    }
+
+    @Benchmark
+    public int eventAppendTo() {
+        this.builder.setLength(0);
+        this.event.appendTo(this.builder);
+        return this.builder.length();
+    }
+}
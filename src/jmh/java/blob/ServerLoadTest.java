@@ -0,0 +1,114 @@
+package blob;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Load-tests a BlobServer on localhost with many users at once, each sending its requests one after another
+ * (adding, marking and listing tasks), and reports the throughput and latency percentiles of the requests.
+ * Every user starts with one request that is not measured, so that loading their tasks is not counted.
+ * Run with e.g. './gradlew loadTest --args="1000 50"' for 1000 users of 50 requests each.
+ */
+public class ServerLoadTest {
+    private static final int DEFAULT_SESSIONS = 1000;
+    private static final int DEFAULT_REQUESTS = 50;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REQUESTS;
+        Path dataFolder = Files.createTempDirectory("blob-load-test");
+        BlobServer server = new BlobServer(0, dataFolder, Duration.ofMinutes(10));
+        server.start();
+        ExecutorService users = BlobServer.newRequestExecutor();
+        try {
+            HttpClient client = HttpClient.newBuilder().executor(BlobServer.newRequestExecutor()).build();
+            String base = "http://localhost:" + server.getPort() + "/users/";
+            long[][] latencies = new long[sessions][requests];
+            AtomicInteger failures = new AtomicInteger();
+            CountDownLatch isReady = new CountDownLatch(sessions);
+            CountDownLatch start = new CountDownLatch(1);
+            for (int i = 0; i < sessions; i++) {
+                String user = base + "user" + i;
+                long[] timings = latencies[i];
+                users.execute(() -> {
+                    send(client, failures, user, -1);
+                    isReady.countDown();
+                    await(start);
+                    for (int j = 0; j < requests; j++) {
+                        long before = System.nanoTime();
+                        send(client, failures, user, j);
+                        timings[j] = System.nanoTime() - before;
+                    }
+                });
+            }
+            isReady.await();
+            long began = System.nanoTime();
+            start.countDown();
+            users.shutdown();
+            users.awaitTermination(1, TimeUnit.HOURS);
+            long elapsed = System.nanoTime() - began;
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("%,d sessions x %,d requests in %.2f s (%,d failed)%n", sessions, requests,
+                    elapsed / 1e9, failures.get());
+            System.out.printf("%,.0f requests/s%n", all.length / (elapsed / 1e9));
+            System.out.printf("p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", percentile(all, 0.50) / 1e6,
+                    percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        } finally {
+            users.shutdownNow();
+            server.stop();
+            try (Stream<Path> files = Files.walk(dataFolder)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Sends the j-th request of a user: mostly adding tasks, with marking and listing in between.
+     */
+    private static void send(HttpClient client, AtomicInteger failures, String user, int j) {
+        HttpRequest request = switch (j % 4) {
+        case 1 -> HttpRequest.newBuilder(URI.create(user + "/tasks?limit=20")).build();
+        case 3 -> post(user + "/commands", "mark " + (j / 2 + 1));
+        default -> post(user + "/commands", "todo task " + j);
+        };
+        try {
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                failures.incrementAndGet();
+            }
+        } catch (IOException e) {
+            failures.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static HttpRequest post(String uri, String command) {
+        return HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofString(command)).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,68 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures loading and saving whole .csv databases of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int rows;
+
+    private Path directory;
+    private CsvStorage source;
+    private CsvStorage target;
+    private ArrayList<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("blob-storage-bench");
+        Path database = this.directory.resolve("database.csv");
+        new TaskCsvGenerator().writeCsv(database, this.rows);
+        this.source = new CsvStorage(database.toString());
+        this.target = new CsvStorage(this.directory.resolve("copy.csv").toString());
+        this.tasks = this.source.getFileContents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (Path file : Files.list(this.directory).toList()) {
+            Files.delete(file);
+        }
+        Files.delete(this.directory);
+    }
+
+    @Benchmark
+    public ArrayList<Task> getFileContents() throws IOException {
+        return this.source.getFileContents();
+    }
+
+    @Benchmark
+    public void forEachTask(Blackhole blackhole) throws IOException {
+        this.source.forEachTask(blackhole::consume);
+    }
+
+    @Benchmark
+    public void updateFileContents() throws IOException {
+        this.target.updateFileContents(this.tasks);
+    }
+}
@@ -0,0 +1,70 @@
+package blob;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates synthetic task databases for benchmarks.
+ * Rows are a fixed mix of todos, deadlines and events with a few tags drawn from a small pool,
+ * produced from a fixed seed so that every run sees the same data.
+ */
+public class TaskCsvGenerator {
+    private static final String[] WORDS = {"read", "write", "CS2103T", "quiz", "assignment", "project", "meeting",
+        "lab", "report", "exam", "gym", "groceries", "call", "mum", "book", "review"};
+    private static final String[] TAGS = {"impt", "fun", "school", "work", "exam", "home"};
+    private static final LocalDateTime BASE_TIME = LocalDateTime.parse("2099-01-01T08:00");
+
+    private final Random random = new Random(2103);
+
+    /**
+     * Writes a database of the given number of rows.
+     * @param path file to be (over)written.
+     * @param rows number of tasks.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeCsv(Path path, int rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("id,type,is_checked,task_name,time1,time2,tags\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(CsvStorage.toCsvRow(this.nextTask(i)));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * @param rows number of tasks.
+     * @return the same tasks writeCsv would write, as objects.
+     */
+    public ArrayList<Task> generateTasks(int rows) {
+        ArrayList<Task> tasks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            tasks.add(this.nextTask(i));
+        }
+        return tasks;
+    }
+
+    private Task nextTask(int i) {
+        String name = WORDS[this.random.nextInt(WORDS.length)] + " " + WORDS[this.random.nextInt(WORDS.length)]
+                + " " + i;
+        boolean isDone = this.random.nextInt(4) == 0;
+        ArrayList<String> tags = new ArrayList<>();
+        for (int t = this.random.nextInt(3); t > 0; t--) {
+            tags.add(TAGS[this.random.nextInt(TAGS.length)]);
+        }
+        LocalDateTime time = BASE_TIME.plusMinutes(this.random.nextInt(500_000));
+        Task t = switch (i % 4) {
+        case 1 -> new Deadline(name, isDone, time.toString(), tags);
+        case 3 -> new Event(name, isDone, time.toString(), time.plusHours(2).toString(), tags);
+        default -> new Todo(name, isDone, tags);
+        };
+        t.setId(i + 1);
+        return t;
+    }
+}
@@ -0,0 +1,74 @@
+package blob;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the in-memory reads of TaskList and the 'find' and 'list' commands on lists of various sizes,
+ * with the tasks held as objects or in columns (where every read creates a view). listPageAfterChange
+ * shows that a page listed right after a change costs the same whatever the size of the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskListBenchmark {
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"array", "columnar"})
+    private String table;
+
+    private TaskList tasklist;
+    private Parser parser;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TaskTable tasks = this.table.equals("columnar") ? new ColumnarTaskTable() : new ArrayTaskTable();
+        this.tasklist = new TaskList(new NullStorage(new TaskCsvGenerator().generateTasks(this.size)), tasks);
+        this.parser = new Parser();
+    }
+
+    @Benchmark
+    public Task getTask() {
+        this.next = (this.next + 7919) % this.size;
+        return this.tasklist.getTask(this.next);
+    }
+
+    @Benchmark
+    public int getSize() {
+        return this.tasklist.getSize();
+    }
+
+    @Benchmark
+    public Object findTasks() {
+        return this.tasklist.findTasks(List.of("quiz", "review"), true);
+    }
+
+    @Benchmark
+    public String executeFind() {
+        return this.parser.executeFind(this.tasklist, new String[] {"find", "quiz", "review"});
+    }
+
+    @Benchmark
+    public String executeList() {
+        return this.parser.executeList(this.tasklist, new String[] {"list"});
+    }
+
+    @Benchmark
+    public String listPageAfterChange() {
+        this.next = (this.next + 7919) % this.size;
+        this.tasklist.markTask(this.next);
+        return this.parser.executeList(this.tasklist, new String[] {"list", "--limit", "20"});
+    }
+}
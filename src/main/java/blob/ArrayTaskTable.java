@@ -0,0 +1,148 @@
+package blob;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * TaskTable that keeps the Task objects themselves, with a hash map from id to task for lookups.
+ * Every call to get returns the same object, so reads allocate nothing.
+ * Tasks are copied on write: marking or tagging a task replaces it with a changed copy, so a Task
+ * handed out is never changed afterwards and can be read from any thread (see TaskList.snapshot).
+ */
+public class ArrayTaskTable implements TaskTable {
+    private final ArrayList<Task> tasks = new ArrayList<>();
+    private final List<Task> readOnlyTasks = Collections.unmodifiableList(this.tasks);
+    private final HashMap<Integer, Task> tasksById = new HashMap<>();
+
+    @Override
+    public int size() {
+        return this.tasks.size();
+    }
+
+    @Override
+    public Task get(int index) {
+        return this.tasks.get(index);
+    }
+
+    @Override
+    public int getId(int index) {
+        return this.tasks.get(index).id;
+    }
+
+    @Override
+    public void setId(int index, int id) {
+        Task t = this.tasks.get(index);
+        this.tasksById.remove(t.id);
+        t.id = id;
+        this.tasksById.put(id, t);
+    }
+
+    @Override
+    public Task getById(int id) {
+        return this.tasksById.get(id);
+    }
+
+    /**
+     * Locates the task by binary search, as the tasks are kept sorted by id (see TaskList.load).
+     */
+    @Override
+    public int indexOfId(int id) {
+        if (!this.tasksById.containsKey(id)) {
+            return -1;
+        }
+        int low = 0;
+        int high = this.tasks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = this.tasks.get(middle).id;
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void add(Task t) {
+        this.tasks.add(t);
+        this.tasksById.put(t.id, t);
+    }
+
+    @Override
+    public void insert(int index, Task t) {
+        this.tasks.add(index, t);
+        this.tasksById.put(t.id, t);
+    }
+
+    @Override
+    public void removeAll(int[] indices) {
+        for (int index : indices) {
+            this.tasksById.remove(this.tasks.get(index).id);
+        }
+        int kept = indices.length == 0 ? this.tasks.size() : indices[0];
+        int next = 0;
+        for (int i = kept; i < this.tasks.size(); i++) {
+            if (next < indices.length && indices[next] == i) {
+                next++;
+            } else {
+                this.tasks.set(kept++, this.tasks.get(i));
+            }
+        }
+        this.tasks.subList(kept, this.tasks.size()).clear();
+    }
+
+    @Override
+    public void setDone(int index, boolean isDone) {
+        Task t = this.replaceWithCopy(index);
+        if (isDone) {
+            t.complete();
+        } else {
+            t.undo();
+        }
+    }
+
+    @Override
+    public void addTag(int index, String tag) {
+        this.replaceWithCopy(index).tags.add(tag);
+    }
+
+    @Override
+    public void clearTags(int index) {
+        this.replaceWithCopy(index).tags.clear();
+    }
+
+    @Override
+    public void clear() {
+        this.tasks.clear();
+        this.tasksById.clear();
+    }
+
+    @Override
+    public List<Task> asList() {
+        return this.readOnlyTasks;
+    }
+
+    /**
+     * Copies only the references, as the tasks themselves are never changed once handed out.
+     */
+    @Override
+    public List<Task> snapshot(int from, int to) {
+        return List.of(this.tasks.subList(from, to).toArray(new Task[0]));
+    }
+
+    /**
+     * @return the copy now standing in for the task at the index, for the caller to change.
+     */
+    private Task replaceWithCopy(int index) {
+        Task copy = this.tasks.get(index).copy();
+        this.tasks.set(index, copy);
+        this.tasksById.put(copy.id, copy);
+        return copy;
+    }
+}
@@ -1,8 +1,5 @@
 package blob;
 
-import javafx.scene.image.Image;
-import javafx.scene.layout.VBox;
-
 import java.io.IOException;
 
 /**
@@ -12,24 +9,90 @@ import java.io.IOException;
  * (preferably "./database.csv")
  */
 public class Blob {
-    private blob.Storage storage;
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+
+    private CsvStorage storage;
     private TaskList tasklist;
     private Ui ui;
+    private DatabaseWatcher watcher;
 
-    public Blob(String filePath, Image userImg, Image blobImg) {
-        this.storage = new Storage(filePath);
+    public Blob(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * @param filePath path of the .csv database.
+     * @param isShared true if other instances of Blob may have the database open at the same time
+     *                 (see CsvStorage.enableSharedMode), in which case their changes show as they are made.
+     */
+    public Blob(String filePath, boolean isShared) {
+        this(filePath, isShared, null);
+    }
+
+    /**
+     * @param filePath path of the .csv database.
+     * @param isShared true if other instances of Blob may have the database open at the same time
+     *                 (see CsvStorage.enableSharedMode), in which case their changes show as they are made.
+     * @param groupCommit batch size and delay in milliseconds (e.g. "500,50") for writing changes in batches
+     *                    (see CsvStorage.enableGroupCommit), or null to write every change as it is made.
+     */
+    public Blob(String filePath, boolean isShared, String groupCommit) {
+        if (isShared && groupCommit != null) {
+            throw new IllegalArgumentException("Shared databases must be written immediately!");
+        }
+        this.storage = new CsvStorage(filePath);
+        try {
+            this.storage.enableJournal(JOURNAL_COMPACT_THRESHOLD);
+            if (isShared) {
+                this.storage.enableSharedMode();
+            }
+            if (groupCommit != null) {
+                this.storage.enableGroupCommit(groupCommit);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Database log was unable to be opened!");
+        }
         this.tasklist = new TaskList(this.storage);
-        this.ui = new Ui(this.tasklist, userImg, blobImg);
+        this.ui = new Ui(this.tasklist);
+        if (isShared) {
+            try {
+                this.watcher = new DatabaseWatcher(filePath, this.tasklist::refresh);
+            } catch (IOException e) {
+                // changes of other instances then only show once a change is made here
+            }
+        }
     }
 
     /**
      * Kicks start the chatbot's chatting functionality
+     * @return the message Blob opens the conversation with.
+     */
+    public String greet() {
+        return this.ui.initialise();
+    }
+
+    /**
+     * Writes all outstanding changes to the database and releases it. Called when the application exits.
      */
-    public void run(VBox dialogContainer) {
-        this.ui.initialise(dialogContainer);
+    public void close() {
+        try {
+            if (this.watcher != null) {
+                this.watcher.close();
+            }
+            this.storage.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error updating database!");
+        }
     }
 
-    public String reply(VBox dialogContainer, String humanInput) {
-        return this.ui.converse(dialogContainer, humanInput);
+    public String reply(String humanInput) {
+        return this.ui.converse(humanInput);
+    }
+
+    /**
+     * Like reply(String), but writes the reply into the sink part by part as it is produced.
+     */
+    public void reply(String humanInput, ReplySink sink) {
+        this.ui.converse(humanInput, sink);
     }
 }
@@ -0,0 +1,453 @@
+package blob;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves Blob to many users over HTTP, as an alternative to each of them running the GUI.
+ * Every user has a database of their own ('data folder/user.csv'). Their TaskList stays in memory while
+ * they are active and is released once they have been idle for a while, or earlier if the tasks held in memory
+ * exceed a budget and they are among the least recently active (see TaskListRegistry), after which their next
+ * request loads it again. Requests run on virtual threads where the JDK supports them, and on a cached pool otherwise.
+ * Endpoints, all replying in JSON:
+ *   POST /users/'user'/commands - runs the command in the request body, e.g. 'todo read book'
+ *   GET  /users/'user'/tasks    - lists the tasks, or only those matching '?find=word1+word2' or '?tag=exam',
+ *                                 a page at a time with '&offset=N&limit=N'
+ *   GET  /users/'user'/tags     - counts the tasks carrying each tag
+ *   GET  /stats                 - counts the users and tasks in memory, and how often users' tasks were found
+ *                                 there (hits), had to be loaded (misses) or were released from it (evictions)
+ * Usage: java -cp blob.jar blob.BlobServer [--port 8080] [--data ./users] [--idle 600] [--max-tasks 1000000]
+ */
+public class BlobServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_DATA_FOLDER = "./users";
+    private static final int DEFAULT_IDLE_SECONDS = 600;
+    private static final long DEFAULT_MAX_RESIDENT_TASKS = 1_000_000;
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+    private static final int BACKLOG = 1024;
+    private static final int MAX_COMMAND_BYTES = 16 * 1024;
+    private static final int STREAM_THRESHOLD = 64 * 1024;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final int STOP_DELAY_SECONDS = 5;
+    private static final Pattern USER_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+    private static final List<String> ROUTES = List.of("POST commands", "GET tasks", "GET tags");
+
+    static {
+        // the JDK's server flushes the headers of a reply before its body, so without TCP_NODELAY every reply
+        // waits for the client's delayed acknowledgement of the headers (about 40 ms)
+        setDefaultProperty("sun.net.httpserver.nodelay", "true");
+        // by default only 200 idle connections are kept open, so clients of the others have theirs closed under them
+        setDefaultProperty("sun.net.httpserver.maxIdleConnections", "" + BACKLOG);
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = newRequestExecutor();
+    private final ScheduledExecutorService evictor;
+    private final Path dataFolder;
+    private final long idleNanos;
+    private final Parser parser = new Parser();
+    private final TaskListRegistry registry;
+
+    /**
+     * @param port port to listen on, or 0 for any free port.
+     * @param dataFolder folder the databases of the users are kept in, created if missing.
+     * @param idleTimeout time after a user's last request that their tasks are released from memory.
+     * @throws IOException if the port cannot be listened on or the folder cannot be created.
+     */
+    public BlobServer(int port, Path dataFolder, Duration idleTimeout) throws IOException {
+        this(port, dataFolder, idleTimeout, DEFAULT_MAX_RESIDENT_TASKS);
+    }
+
+    /**
+     * @param port port to listen on, or 0 for any free port.
+     * @param dataFolder folder the databases of the users are kept in, created if missing.
+     * @param idleTimeout time after a user's last request that their tasks are released from memory.
+     * @param maxResidentTasks number of tasks held in memory across all users, beyond which the tasks of the
+     *     least recently active users are released early.
+     * @throws IOException if the port cannot be listened on or the folder cannot be created.
+     */
+    public BlobServer(int port, Path dataFolder, Duration idleTimeout, long maxResidentTasks) throws IOException {
+        this.dataFolder = Files.createDirectories(dataFolder);
+        this.idleNanos = idleTimeout.toNanos();
+        this.registry = new TaskListRegistry(this::open, maxResidentTasks);
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.server.createContext("/users/", this::handle);
+        this.server.createContext("/stats", this::handleStats);
+        this.server.setExecutor(this.executor);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "blob-session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMillis = Math.max(1000, idleTimeout.toMillis() / 2);
+        this.evictor.scheduleAtFixedRate(this::evictIdle, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of users whose tasks are held in memory.
+     */
+    public int getResidentUsers() {
+        return this.registry.size();
+    }
+
+    /**
+     * Stops taking requests, waits a little for those already running and writes out every user's database.
+     */
+    public void stop() {
+        this.server.stop(0);
+        this.evictor.shutdown();
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.registry.evictAll();
+    }
+
+    /**
+     * Releases the tasks of every user that has no request running and has been idle for longer than the timeout.
+     * Runs periodically in the background. A user whose database cannot be written out keeps their tasks in memory
+     * until a later run succeeds.
+     */
+    void evictIdle() {
+        try {
+            this.registry.evictIdle(this.idleNanos);
+        } catch (RuntimeException e) {
+            // not rethrown, as that would cancel every later run
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String route = path.length == 4 ? exchange.getRequestMethod() + " " + path[3] : "";
+            if (!ROUTES.contains(route)) {
+                sendJson(exchange, 404, error("Unknown request!"));
+                return;
+            }
+            String user = path[2].toLowerCase(Locale.ROOT);
+            if (!USER_NAME.matcher(user).matches()) {
+                sendJson(exchange, 400, error("User names may only contain letters, digits, '-' and '_'!"));
+                return;
+            }
+            String filePath = this.dataFolder.resolve(user + ".csv").toString();
+            TaskList tasklist = this.registry.acquire(filePath);
+            try {
+                switch (route) {
+                case "POST commands" -> this.runCommand(exchange, tasklist);
+                case "GET tasks" -> this.sendTasks(exchange, tasklist);
+                default -> this.sendTags(exchange, tasklist);
+                }
+            } finally {
+                this.registry.release(filePath);
+            }
+        } catch (RuntimeException e) {
+            // e.g. "Error updating database!"; nothing can be sent if the reply had already started
+            if (exchange.getResponseCode() < 0) {
+                sendJson(exchange, 500, error(CommandRunner.describe(e)));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Storage open(String filePath) {
+        CsvStorage storage = new CsvStorage(filePath);
+        try {
+            storage.enableJournal(JOURNAL_COMPACT_THRESHOLD);
+        } catch (IOException e) {
+            throw new RuntimeException("Database log was unable to be opened!");
+        }
+        return storage;
+    }
+
+    /**
+     * Replies with how well the users' tasks are being kept in memory, e.g.
+     * {"resident":12,"tasks":340,"hits":1200,"misses":15,"evictions":3}.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") || !exchange.getRequestURI().getPath().equals("/stats")) {
+                sendJson(exchange, 404, error("Unknown request!"));
+                return;
+            }
+            sendJson(exchange, 200, "{\"resident\":" + this.registry.size()
+                    + ",\"tasks\":" + this.registry.getWeight()
+                    + ",\"hits\":" + this.registry.getHits()
+                    + ",\"misses\":" + this.registry.getMisses()
+                    + ",\"evictions\":" + this.registry.getEvictions() + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Runs the command in the request body, replying with {"reply": "..."}. Replies are sent in one piece
+     * with their length up front, except for long ones (e.g. listing thousands of tasks), which are streamed
+     * in chunks as they are produced so that they are never held in memory whole.
+     */
+    private void runCommand(HttpExchange exchange, TaskList tasklist) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_COMMAND_BYTES + 1);
+        }
+        if (body.length > MAX_COMMAND_BYTES) {
+            sendJson(exchange, 413, error("Command is too long!"));
+            return;
+        }
+        String command = new String(body, StandardCharsets.UTF_8);
+
+        StringBuilder json = new StringBuilder("{\"reply\":\"");
+        Writer[] stream = new Writer[1];
+        ReplySink sink = part -> {
+            int start = json.length();
+            appendJsonString(json, part);
+            // without the quotes around it, as the reply comes in several parts
+            json.deleteCharAt(json.length() - 1).deleteCharAt(start);
+            if (json.length() < STREAM_THRESHOLD) {
+                return;
+            }
+            try {
+                if (stream[0] == null) {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                    exchange.sendResponseHeaders(200, 0);
+                    stream[0] = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                            StandardCharsets.UTF_8));
+                }
+                stream[0].append(json);
+                json.setLength(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            this.parser.evaluateAction(tasklist, command, sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            sink.write(CommandRunner.describe(e));
+        }
+        json.append("\"}");
+        if (stream[0] == null) {
+            sendJson(exchange, 200, json);
+            return;
+        }
+        stream[0].append(json);
+        stream[0].flush();
+    }
+
+    private void sendTasks(HttpExchange exchange, TaskList tasklist) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int offset;
+        int limit;
+        try {
+            offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+            limit = Math.min(MAX_LIMIT, Integer.parseInt(query.getOrDefault("limit", "" + DEFAULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, error("Offset and limit must be numbers!"));
+            return;
+        }
+        if (offset < 0 || limit < 0) {
+            sendJson(exchange, 400, error("Offset and limit can't be negative!"));
+            return;
+        }
+
+        TaskSlice tasks;
+        if (query.containsKey("find")) {
+            List<String> keywords = Arrays.asList(query.get("find").trim().split("\\s+"));
+            tasks = TaskSlice.of(tasklist.findTasks(keywords, true), offset, limit);
+        } else if (query.containsKey("tag")) {
+            tasks = TaskSlice.of(tasklist.getTasksWithTag(query.get("tag")), offset, limit);
+        } else {
+            tasks = tasklist.snapshot(offset, limit);
+        }
+        int from = tasks.getFrom();
+        StringBuilder s = new StringBuilder();
+        s.append("{\"total\":").append(tasks.getListSize()).append(",\"offset\":").append(from)
+                .append(",\"tasks\":[");
+        for (int i = from; i < tasks.getTo(); i++) {
+            if (i > from) {
+                s.append(',');
+            }
+            appendTaskJson(s, tasks.get(i));
+        }
+        s.append("]}");
+        sendJson(exchange, 200, s);
+    }
+
+    private void sendTags(HttpExchange exchange, TaskList tasklist) throws IOException {
+        StringBuilder s = new StringBuilder("{");
+        tasklist.getTagCounts().forEach((tag, count) -> {
+            if (s.length() > 1) {
+                s.append(',');
+            }
+            appendJsonString(s, tag);
+            s.append(':').append(count);
+        });
+        s.append('}');
+        sendJson(exchange, 200, s);
+    }
+
+    /**
+     * Appends a task as a JSON object, e.g. {"id":3,"type":"D","name":"essay","done":false,"tags":["impt"],
+     * "by":"2024-09-10T13:00"}, where events have "from" and "to" instead of "by".
+     */
+    static void appendTaskJson(StringBuilder s, Task t) {
+        s.append("{\"id\":").append(t.id).append(",\"type\":\"").append(t.type).append("\",\"name\":");
+        appendJsonString(s, t.name);
+        s.append(",\"done\":").append(t.isDone).append(",\"tags\":[");
+        for (int i = 0; i < t.tags.size(); i++) {
+            if (i > 0) {
+                s.append(',');
+            }
+            appendJsonString(s, t.tags.get(i));
+        }
+        s.append(']');
+        switch (t.type) {
+        case "D" -> appendJsonTime(s, "by", ((Deadline) t).getDeadlineEpochSecond());
+        case "E" -> {
+            appendJsonTime(s, "from", ((Event) t).getStartEpochSecond());
+            appendJsonTime(s, "to", ((Event) t).getEndEpochSecond());
+        }
+        default -> { }
+        }
+        s.append('}');
+    }
+
+    private static void appendJsonTime(StringBuilder s, String key, long epochSecond) {
+        s.append(",\"").append(key).append("\":\"");
+        IsoDateTime.appendIso(s, epochSecond);
+        s.append('"');
+    }
+
+    /**
+     * Appends the value as a quoted JSON string, escaping quotes, backslashes and control characters.
+     */
+    static void appendJsonString(StringBuilder s, CharSequence value) {
+        s.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"' -> s.append("\\\"");
+            case '\\' -> s.append("\\\\");
+            case '\n' -> s.append("\\n");
+            case '\r' -> s.append("\\r");
+            case '\t' -> s.append("\\t");
+            default -> {
+                if (c < 0x20) {
+                    s.append(String.format("\\u%04x", (int) c));
+                } else {
+                    s.append(c);
+                }
+            }
+            }
+        }
+        s.append('"');
+    }
+
+    private static StringBuilder error(String message) {
+        StringBuilder s = new StringBuilder("{\"error\":");
+        appendJsonString(s, message);
+        return s.append('}');
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * @param rawQuery query of the request URI, still percent-encoded, or null if there is none.
+     * @return decoded value of every parameter, by name.
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        HashMap<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+     * Sets a system property, unless it was given on the command line. Only has an effect on the JDK's server
+     * before the first one is created.
+     */
+    private static void setDefaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * @return executor running each request on a virtual thread of its own if the JDK supports them,
+     *         or on a cached pool of platform threads otherwise.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String dataFolder = DEFAULT_DATA_FOLDER;
+        int idleSeconds = DEFAULT_IDLE_SECONDS;
+        long maxTasks = DEFAULT_MAX_RESIDENT_TASKS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--port" -> port = Integer.parseInt(args[++i]);
+            case "--data" -> dataFolder = args[++i];
+            case "--idle" -> idleSeconds = Integer.parseInt(args[++i]);
+            case "--max-tasks" -> maxTasks = Long.parseLong(args[++i]);
+            default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        BlobServer server = new BlobServer(port, Path.of(dataFolder), Duration.ofSeconds(idleSeconds), maxTasks);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Blob is serving on port " + server.getPort());
+    }
+}
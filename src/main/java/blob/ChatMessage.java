@@ -0,0 +1,34 @@
+package blob;
+
+/**
+ * Represents a single message of the conversation between the user and Blob.
+ * Messages hold only their text and speaker; DialogCell turns them into dialog boxes when they are shown.
+ */
+public class ChatMessage {
+    private final String text;
+    private final boolean isFromUser;
+
+    public ChatMessage(String text, boolean isFromUser) {
+        this.text = text;
+        this.isFromUser = isFromUser;
+    }
+
+    public static ChatMessage fromUser(String text) {
+        return new ChatMessage(text, true);
+    }
+
+    public static ChatMessage fromBlob(String text) {
+        return new ChatMessage(text, false);
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * @return true if the user sent the message, false if Blob did.
+     */
+    public boolean isFromUser() {
+        return this.isFromUser;
+    }
+}
@@ -0,0 +1,178 @@
+package blob;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs Blob without its GUI: commands are read line by line from a script (or standard input) and each
+ * reply is written to standard output.
+ * Changes are kept in memory and only written to the database at checkpoints and once the script ends,
+ * so that scripts of hundreds of thousands of commands (e.g. bulk imports) are not held up by the disk.
+ * With --columnar the tasks are held in a ColumnarTaskTable, which takes far less memory for huge lists.
+ * With --shared the database may be open in other instances of Blob at the same time, so every change is
+ * written as it is made instead (see CsvStorage.enableSharedMode).
+ * With --group-commit N,T changes are written to the database log in batches of up to N changes, none waiting
+ * longer than T milliseconds, instead of at checkpoints (see CsvStorage.enableGroupCommit).
+ * Usage: java -cp blob.jar blob.Cli [--db database.csv] [--checkpoint N | --group-commit N,T | --shared]
+ *        [--columnar] [script.txt]
+ */
+public class Cli {
+    private static final String DEFAULT_FILE_PATH = "./database.csv";
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+
+    private CsvStorage storage;
+    private TaskList tasklist;
+    private Parser parser = new Parser();
+    private DatabaseWatcher watcher;
+
+    /**
+     * @param filePath path of the .csv database.
+     * @param checkpointInterval number of changes between writes to the database, or 0 to only write at the end.
+     */
+    public Cli(String filePath, int checkpointInterval) {
+        this(filePath, checkpointInterval, new ArrayTaskTable());
+    }
+
+    /**
+     * @param filePath path of the .csv database.
+     * @param checkpointInterval number of changes between writes to the database, or 0 to only write at the end.
+     * @param tasks empty table to hold the tasks in.
+     */
+    public Cli(String filePath, int checkpointInterval, TaskTable tasks) {
+        this.storage = new CsvStorage(filePath);
+        this.storage.enableDeferredWrites(checkpointInterval);
+        this.tasklist = new TaskList(this.storage, tasks);
+    }
+
+    private Cli(CsvStorage storage, TaskTable tasks) {
+        this.storage = storage;
+        this.tasklist = new TaskList(storage, tasks);
+    }
+
+    /**
+     * Runs commands against a database that other instances of Blob may have open at the same time.
+     * Every change is written as it is made, and changes made by the others are caught up with as they happen.
+     * @param filePath path of the .csv database.
+     * @param tasks empty table to hold the tasks in.
+     * @return Cli working on the shared database.
+     * @throws IOException if the database log cannot be opened or the database cannot be locked.
+     */
+    public static Cli shared(String filePath, TaskTable tasks) throws IOException {
+        CsvStorage storage = new CsvStorage(filePath);
+        storage.enableJournal(JOURNAL_COMPACT_THRESHOLD);
+        storage.enableSharedMode();
+        Cli cli = new Cli(storage, tasks);
+        cli.watcher = new DatabaseWatcher(filePath, cli.tasklist::refresh);
+        return cli;
+    }
+
+    /**
+     * Runs commands against a database whose changes are written to its log in batches by a background writer,
+     * so that long scripts are not held up by the disk yet lose at most the last batch on a crash.
+     * @param filePath path of the .csv database.
+     * @param groupCommit batch size and delay in milliseconds, separated by a comma (e.g. "500,50").
+     * @param tasks empty table to hold the tasks in.
+     * @return Cli working on the database.
+     * @throws IOException if the database log cannot be opened.
+     */
+    public static Cli groupCommit(String filePath, String groupCommit, TaskTable tasks) throws IOException {
+        CsvStorage storage = new CsvStorage(filePath);
+        storage.enableJournal(JOURNAL_COMPACT_THRESHOLD);
+        storage.enableGroupCommit(groupCommit);
+        return new Cli(storage, tasks);
+    }
+
+    /**
+     * Runs every command of the script until it ends or 'bye' is entered. Blank lines are skipped.
+     * Replies are written into out as they are produced, so long listings are never held in memory whole.
+     * Output is only flushed when no more input is immediately available, so piping in a script
+     * does not pay for a flush per command while typing commands in still gets a reply to each.
+     * @param in script to be run.
+     * @param out where replies are written, one after another.
+     * @return number of commands run.
+     * @throws IOException if the script cannot be read or the replies cannot be written.
+     */
+    public int run(BufferedReader in, Writer out) throws IOException {
+        ReplySink sink = ReplySink.of(out);
+        int count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            count++;
+            try {
+                this.parser.evaluateAction(this.tasklist, line, sink);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.write('\n');
+            if (Parser.tokenize(line)[0].equalsIgnoreCase("bye")) {
+                break;
+            }
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Writes all outstanding changes to the database and releases it.
+     */
+    public void close() {
+        try {
+            if (this.watcher != null) {
+                this.watcher.close();
+            }
+            this.storage.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error updating database!");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filePath = DEFAULT_FILE_PATH;
+        int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        TaskTable tasks = new ArrayTaskTable();
+        boolean isShared = false;
+        String groupCommit = null;
+        String scriptPath = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--db" -> filePath = args[++i];
+            case "--checkpoint" -> checkpointInterval = Integer.parseInt(args[++i]);
+            case "--columnar" -> tasks = new ColumnarTaskTable();
+            case "--shared" -> isShared = true;
+            case "--group-commit" -> groupCommit = args[++i];
+            default -> scriptPath = args[i];
+            }
+        }
+
+        BufferedReader in = scriptPath == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(scriptPath), StandardCharsets.UTF_8);
+        if (isShared && groupCommit != null) {
+            throw new IllegalArgumentException("Shared databases must be written immediately!");
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        Cli cli = isShared ? Cli.shared(filePath, tasks)
+                : groupCommit != null ? Cli.groupCommit(filePath, groupCommit, tasks)
+                : new Cli(filePath, checkpointInterval, tasks);
+        try (in) {
+            cli.run(in, out);
+        } finally {
+            cli.close();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package blob;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * TaskTable that keeps every field of its tasks in a column of its own instead of in Task objects:
+ * ids, types and epoch-second times in primitive arrays, done flags in a BitSet, and tags as arrays of ids
+ * into a pool holding each distinct tag once. A task without a date or tags costs no more than its name
+ * and a few bytes of columns, where a Task object with its tag list costs well over a hundred.
+ * Task objects are created on demand by get, as views that copy the columns of one row; changing a view
+ * does not change the table. A snapshot copies the columns of the rows asked for, not Task objects, so
+ * its views are only created as its rows are read. Tasks are located by id through binary search, as they
+ * are sorted by id.
+ */
+public class ColumnarTaskTable implements TaskTable {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_TAGS = new int[0];
+
+    /**
+     * Hands out a small int id for every distinct string, and the string back for every id.
+     * Strings are only ever appended, so a read-only copy can share them with the pool.
+     */
+    private static class StringPool {
+        private final HashMap<String, Integer> ids;
+        private String[] strings;
+        private int size;
+
+        StringPool() {
+            this.ids = new HashMap<>();
+            this.strings = new String[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Creates a read-only copy of the pool, which strings interned later do not show up in.
+         */
+        StringPool(StringPool pool) {
+            this.ids = null;
+            this.strings = pool.strings;
+            this.size = pool.size;
+        }
+
+        int intern(String s) {
+            Integer id = this.ids.get(s);
+            if (id == null) {
+                if (this.size == this.strings.length) {
+                    this.strings = Arrays.copyOf(this.strings, this.size * 2);
+                }
+                id = this.size++;
+                this.strings[id] = s;
+                this.ids.put(s, id);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return this.strings[id];
+        }
+    }
+
+    private final StringPool tagPool;
+    private final BitSet done;
+    private final List<Task> view = new AbstractList<>() {
+        @Override
+        public Task get(int index) {
+            return ColumnarTaskTable.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return ColumnarTaskTable.this.size;
+        }
+    };
+    private int size;
+    private int[] ids;
+    private byte[] types;
+    private long[] times1; // deadline, or start of an event
+    private long[] times2; // end of an event
+    private String[] names;
+    private int[][] tagIds;
+
+    public ColumnarTaskTable() {
+        this.tagPool = new StringPool();
+        this.done = new BitSet();
+        this.ids = new int[INITIAL_CAPACITY];
+        this.types = new byte[INITIAL_CAPACITY];
+        this.times1 = new long[INITIAL_CAPACITY];
+        this.times2 = new long[INITIAL_CAPACITY];
+        this.names = new String[INITIAL_CAPACITY];
+        this.tagIds = new int[INITIAL_CAPACITY][];
+    }
+
+    /**
+     * Creates a read-only copy of some rows of a table. Rows share their names and tag arrays with
+     * the table, as the table replaces those rather than changing them.
+     */
+    private ColumnarTaskTable(ColumnarTaskTable table, int from, int to) {
+        this.tagPool = new StringPool(table.tagPool);
+        this.done = table.done.get(from, to);
+        this.size = to - from;
+        this.ids = Arrays.copyOfRange(table.ids, from, to);
+        this.types = Arrays.copyOfRange(table.types, from, to);
+        this.times1 = Arrays.copyOfRange(table.times1, from, to);
+        this.times2 = Arrays.copyOfRange(table.times2, from, to);
+        this.names = Arrays.copyOfRange(table.names, from, to);
+        this.tagIds = Arrays.copyOfRange(table.tagIds, from, to);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return a new Task holding a copy of the row at the index.
+     */
+    @Override
+    public Task get(int index) {
+        this.checkIndex(index);
+        int[] rowTags = this.tagIds[index];
+        ArrayList<String> tags = new ArrayList<>(rowTags.length);
+        for (int tagId : rowTags) {
+            tags.add(this.tagPool.get(tagId));
+        }
+        boolean isDone = this.done.get(index);
+        Task t = switch (this.types[index]) {
+        case 'D' -> new Deadline(this.names[index], isDone, this.times1[index], tags);
+        case 'E' -> new Event(this.names[index], isDone, this.times1[index], this.times2[index], tags);
+        default -> new Todo(this.names[index], isDone, tags);
+        };
+        t.setId(this.ids[index]);
+        return t;
+    }
+
+    @Override
+    public int getId(int index) {
+        this.checkIndex(index);
+        return this.ids[index];
+    }
+
+    @Override
+    public void setId(int index, int id) {
+        this.checkIndex(index);
+        this.ids[index] = id;
+    }
+
+    @Override
+    public Task getById(int id) {
+        int index = this.indexOfId(id);
+        return index < 0 ? null : this.get(index);
+    }
+
+    @Override
+    public int indexOfId(int id) {
+        int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+        return index < 0 ? -1 : index;
+    }
+
+    @Override
+    public void add(Task t) {
+        this.insert(this.size, t);
+    }
+
+    @Override
+    public void insert(int index, Task t) {
+        if (index < 0 || index > this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (this.size == this.ids.length) {
+            this.grow();
+        }
+        for (int i = this.size; i > index; i--) {
+            this.moveRow(i - 1, i);
+        }
+        this.size++;
+        this.ids[index] = t.id;
+        this.types[index] = (byte) t.type.charAt(0);
+        this.done.set(index, t.isDone);
+        if (t instanceof Deadline d) {
+            this.times1[index] = d.getDeadlineEpochSecond();
+        } else if (t instanceof Event e) {
+            this.times1[index] = e.getStartEpochSecond();
+            this.times2[index] = e.getEndEpochSecond();
+        }
+        this.names[index] = t.name;
+        this.tagIds[index] = NO_TAGS;
+        for (String tag : t.tags) {
+            this.addTag(index, tag);
+        }
+    }
+
+    @Override
+    public void removeAll(int[] indices) {
+        int kept = indices.length == 0 ? this.size : indices[0];
+        int next = 0;
+        for (int i = kept; i < this.size; i++) {
+            if (next < indices.length && indices[next] == i) {
+                next++;
+            } else {
+                this.moveRow(i, kept++);
+            }
+        }
+        this.done.clear(kept, this.size);
+        Arrays.fill(this.names, kept, this.size, null);
+        Arrays.fill(this.tagIds, kept, this.size, null);
+        this.size = kept;
+    }
+
+    @Override
+    public void setDone(int index, boolean isDone) {
+        this.checkIndex(index);
+        this.done.set(index, isDone);
+    }
+
+    @Override
+    public void addTag(int index, String tag) {
+        this.checkIndex(index);
+        int[] rowTags = this.tagIds[index];
+        int[] grown = Arrays.copyOf(rowTags, rowTags.length + 1);
+        grown[rowTags.length] = this.tagPool.intern(tag);
+        this.tagIds[index] = grown;
+    }
+
+    @Override
+    public void clearTags(int index) {
+        this.checkIndex(index);
+        this.tagIds[index] = NO_TAGS;
+    }
+
+    @Override
+    public void clear() {
+        this.done.clear();
+        Arrays.fill(this.names, 0, this.size, null);
+        Arrays.fill(this.tagIds, 0, this.size, null);
+        this.size = 0;
+    }
+
+    @Override
+    public List<Task> asList() {
+        return this.view;
+    }
+
+    @Override
+    public List<Task> snapshot(int from, int to) {
+        Objects.checkFromToIndex(from, to, this.size);
+        return new ColumnarTaskTable(this, from, to).asList();
+    }
+
+    private void moveRow(int from, int to) {
+        this.ids[to] = this.ids[from];
+        this.types[to] = this.types[from];
+        this.done.set(to, this.done.get(from));
+        this.times1[to] = this.times1[from];
+        this.times2[to] = this.times2[from];
+        this.names[to] = this.names[from];
+        this.tagIds[to] = this.tagIds[from];
+    }
+
+    private void grow() {
+        int capacity = this.ids.length * 2;
+        this.ids = Arrays.copyOf(this.ids, capacity);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.times1 = Arrays.copyOf(this.times1, capacity);
+        this.times2 = Arrays.copyOf(this.times2, capacity);
+        this.names = Arrays.copyOf(this.names, capacity);
+        this.tagIds = Arrays.copyOf(this.tagIds, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+}
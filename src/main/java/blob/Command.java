@@ -0,0 +1,27 @@
+package blob;
+
+/**
+ * Handler for a single command verb, e.g. 'list' or 'todo'.
+ * Handlers are registered with Parser.registerCommand and receive the tokens of the user's input,
+ * with the verb itself at index 0.
+ */
+@FunctionalInterface
+public interface Command {
+    /**
+     * @param tasklist Tasklist containing all existing tasks.
+     * @param arr tokens of the user's input, with any ',' replaced by '\0'.
+     * @return reply to be shown to the user.
+     */
+    String execute(TaskList tasklist, String[] arr);
+
+    /**
+     * Writes the reply into a sink instead. Commands with long replies stream them part by part
+     * (see StreamingCommand); any other command writes its whole reply at once.
+     * @param tasklist Tasklist containing all existing tasks.
+     * @param arr tokens of the user's input, with any ',' replaced by '\0'.
+     * @param sink sink the reply is written into.
+     */
+    default void stream(TaskList tasklist, String[] arr, ReplySink sink) {
+        sink.write(this.execute(tasklist, arr));
+    }
+}
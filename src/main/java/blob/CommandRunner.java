@@ -0,0 +1,157 @@
+package blob;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs commands one at a time on a background thread, so that the GUI stays responsive while they run.
+ * The thread is a virtual thread where the JDK supports them, and a daemon platform thread otherwise.
+ * Commands run in the order they were submitted and their replies are handed to the reply executor
+ * (e.g. Platform::runLater) in that same order, part by part as they are produced (see ReplySink).
+ * Only a few parts are handed over at a time, so a command producing a long reply waits for them
+ * to be shown rather than piling them all up in the reply executor.
+ * Cancelling is cooperative: long loops call checkCancelled, rather than being interrupted, since an
+ * interrupt during a write would close the database's FileChannel.
+ */
+public class CommandRunner {
+    public static final String CANCELLED_MSG = "OK, I've stopped that command.";
+    public static final String ERROR_MSG = "ERROR! Something went wrong with that command!";
+
+    private static final int MAX_PARTS_IN_FLIGHT = 4;
+    private static final ThreadLocal<BooleanSupplier> IS_CANCELLED = new ThreadLocal<>();
+
+    private final BiConsumer<String, ReplySink> handler;
+    private final Executor replyExecutor;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(newThreadFactory());
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong cancelledUpTo = new AtomicLong();
+    private final Semaphore partsInFlight = new Semaphore(MAX_PARTS_IN_FLIGHT);
+    private volatile boolean isClosed;
+
+    /**
+     * @param handler function running a command and writing its reply into the given sink.
+     * @param replyExecutor executor the replies are handed over on.
+     */
+    public CommandRunner(BiConsumer<String, ReplySink> handler, Executor replyExecutor) {
+        this.handler = handler;
+        this.replyExecutor = replyExecutor;
+    }
+
+    /**
+     * Queues a command to be run after every command submitted before it.
+     * @param command command to be run.
+     * @param onPart callback receiving each part of the reply (ending with CANCELLED_MSG if cancelled)
+     *               on the reply executor.
+     * @param onDone callback run on the reply executor once the whole reply has been handed over.
+     */
+    public void submit(String command, Consumer<String> onPart, Runnable onDone) {
+        long sequence = this.submitted.incrementAndGet();
+        BooleanSupplier isCancelled = () -> sequence <= this.cancelledUpTo.get();
+        this.worker.execute(() -> {
+            IS_CANCELLED.set(isCancelled);
+            try {
+                if (isCancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                this.handler.accept(command, part -> {
+                    String copy = part.toString();
+                    this.handOver(() -> onPart.accept(copy));
+                });
+            } catch (CancellationException e) {
+                this.handOver(() -> onPart.accept(CANCELLED_MSG));
+            } catch (RuntimeException e) {
+                // e.g. "Error updating database!", which would otherwise leave the reply unfinished
+                this.handOver(() -> onPart.accept(describe(e)));
+            } finally {
+                IS_CANCELLED.remove();
+            }
+            this.handOver(onDone);
+        });
+    }
+
+    /**
+     * @return the message of an exception thrown by a command, or ERROR_MSG if it has none (e.g. a bug).
+     */
+    static String describe(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : ERROR_MSG;
+    }
+
+    /**
+     * Cancels the running command and every command waiting to run. Each of them still replies, with CANCELLED_MSG.
+     */
+    public void cancel() {
+        this.cancelledUpTo.set(this.submitted.get());
+    }
+
+    /**
+     * Runs every command already submitted and stops the background thread.
+     * From then on, replies are handed over without waiting for earlier ones to be shown.
+     * @throws InterruptedException if interrupted while waiting for the commands to finish.
+     */
+    public void close() throws InterruptedException {
+        // the reply executor may no longer be running anything, so stop waiting for it
+        this.isClosed = true;
+        this.partsInFlight.release(MAX_PARTS_IN_FLIGHT);
+        this.worker.shutdown();
+        this.worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called from long-running loops of a command, e.g. while listing tasks.
+     * Does nothing outside of a CommandRunner.
+     * @throws CancellationException if the command running on this thread has been cancelled.
+     */
+    public static void checkCancelled() {
+        BooleanSupplier isCancelled = IS_CANCELLED.get();
+        if (isCancelled != null && isCancelled.getAsBoolean()) {
+            throw new CancellationException("Command was cancelled!");
+        }
+    }
+
+    /**
+     * Hands a callback over to the reply executor once fewer than MAX_PARTS_IN_FLIGHT are waiting there,
+     * or straight away after close.
+     */
+    private void handOver(Runnable callback) {
+        boolean isLimited = !this.isClosed;
+        if (isLimited) {
+            this.partsInFlight.acquireUninterruptibly();
+        }
+        this.replyExecutor.execute(() -> {
+            try {
+                callback.run();
+            } finally {
+                if (isLimited) {
+                    this.partsInFlight.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return factory of virtual threads if Thread.ofVirtual() is available, or of daemon threads otherwise.
+     */
+    private static ThreadFactory newThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class).invoke(builder, "blob-commands");
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return r -> {
+                Thread thread = new Thread(r, "blob-commands");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
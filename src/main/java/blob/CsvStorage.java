@@ -0,0 +1,579 @@
+package blob;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Storage backed by a database in the form of a .csv file.
+ * Constructor is to be called with a string representation of the desired file path to store the database as its argument.
+ * In journaled mode, changes are appended to a log next to the database ('database.csv.log') and only
+ * periodically compacted into the database itself.
+ * In group-commit mode, logged changes are additionally collected in memory and written in batches
+ * by a background writer (see Durability).
+ * In deferred mode, changes are only written at checkpoints or on sync(), as a full rewrite of the database.
+ * In shared mode, several processes can have the database open at once (see enableSharedMode).
+ */
+public class CsvStorage implements Storage {
+    private static final String NA_DATA = "NA";
+    private static final String HEADERS = "id,type,is_checked,task_name,time1,time2,tags";
+
+    private File file;
+    private String filePath;
+    private Journal journal;
+    private int compactThreshold;
+    private Durability durability = Durability.IMMEDIATE;
+    private int batchSize = 1;
+    private long delayMillis;
+    private int pendingChanges;
+    private boolean isFlushRequested;
+    private boolean isFlushScheduled;
+    private int checkpointInterval;
+    private List<? extends Task> deferredDatabase;
+    private ScheduledExecutorService flusher;
+    private IOException flushError;
+    private SnapshotWriter snapshotWriter = new SnapshotWriter();
+    private long snapshotChecksum;
+    private int nextId;
+    private DatabaseLock sharedLock;
+    private FileVersion version;
+
+    public CsvStorage(String filePath) {
+        //ensures file is always created (if it didn't exist initially)
+        try {
+            this.filePath = filePath;
+            this.file = new File(filePath);
+            if (this.file.createNewFile()) {
+                FileWriter fw = new FileWriter(filePath);
+                fw.write(HEADERS + "\n");
+                fw.close();
+            } else {
+                Scanner s = new Scanner(this.file);
+                String headers = s.nextLine();
+                s.close();
+                // databases written before tasks had ids lack the 'id' column
+                assert headers.startsWith("id,type,is_checked,task_name,time1,time2")
+                        || headers.startsWith("type,is_checked,task_name,time1,time2") : "File headers are wrong!";
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Database file was unable to be generated!");
+        }
+    }
+
+    /**
+     * Switches to journaled mode, where each change is appended to the log instead of rewriting the database.
+     * The log is compacted into the database once it holds more changes than both the threshold and
+     * the number of tasks, so that the cost of compaction stays constant per change.
+     * @param compactThreshold minimum number of logged changes before the log is compacted into the database.
+     * @throws IOException if the log cannot be opened.
+     */
+    public synchronized void enableJournal(int compactThreshold) throws IOException {
+        assert compactThreshold > 0 : "Compaction threshold must be positive!";
+        this.journal = new Journal(this.filePath + ".log");
+        this.journal.open(this.getSnapshotChecksum());
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Switches to group-commit mode (enabling the journal if needed). Changes are written by a background
+     * writer once batchSize changes are waiting or delayMillis has passed since the first waiting change.
+     * Up to batchSize changes, or delayMillis worth of changes, can therefore be lost on a crash;
+     * call sync() to write them out explicitly.
+     * @param batchSize number of changes that triggers a write.
+     * @param delayMillis longest time in milliseconds that a change waits before being written.
+     * @throws IOException if the log cannot be opened.
+     */
+    @Override
+    public synchronized void enableGroupCommit(int batchSize, long delayMillis) throws IOException {
+        assert batchSize > 0 : "Batch size must be positive!";
+        assert this.sharedLock == null : "Shared databases must be written immediately!";
+        if (this.journal == null) {
+            this.enableJournal(batchSize);
+        }
+        this.batchSize = batchSize;
+        this.delayMillis = delayMillis;
+        this.journal.setBuffered(true);
+        if (this.flusher == null) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "blob-storage-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.durability = Durability.GROUP_COMMIT;
+    }
+
+    /**
+     * Switches to group-commit mode as given by an option such as '-Dblob.groupCommit=500,50'.
+     * @param option batch size and delay in milliseconds, separated by a comma.
+     * @throws IOException if the log cannot be opened.
+     * @throws IllegalArgumentException if the option is not of that form.
+     */
+    public void enableGroupCommit(String option) throws IOException {
+        String[] parts = option.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Group commit must be given as 'batch size,delay in ms'!");
+        }
+        this.enableGroupCommit(Integer.parseInt(parts[0].trim()), Long.parseLong(parts[1].trim()));
+    }
+
+    /**
+     * Switches to deferred mode, where changes are not written as they happen. Instead the whole database
+     * is rewritten once checkpointInterval changes have accumulated, and on sync().
+     * Every change since the last checkpoint is therefore lost on a crash.
+     * @param checkpointInterval number of changes between checkpoints, or 0 to only write on sync().
+     */
+    public synchronized void enableDeferredWrites(int checkpointInterval) {
+        assert checkpointInterval >= 0 : "Checkpoint interval can't be negative!";
+        this.checkpointInterval = checkpointInterval;
+        this.durability = Durability.DEFERRED;
+    }
+
+    /**
+     * Switches to shared mode, for a database that several processes (e.g. instances of Blob on a shared disk)
+     * have open at once. Changes are then only written while holding an exclusive lock on the database
+     * (see DatabaseLock), and pollChanges reports the changes made by the other processes: as long as they
+     * only appended to the log, by reading just the new records, and otherwise by asking for a full reload.
+     * Requires the journal, and changes have to be written immediately so that the others see them.
+     * @throws IOException if the database cannot be locked.
+     */
+    public synchronized void enableSharedMode() throws IOException {
+        assert this.journal != null : "Shared mode requires the journal!";
+        assert this.durability == Durability.IMMEDIATE : "Shared databases must be written immediately!";
+        this.sharedLock = new DatabaseLock(this.filePath + ".lock");
+        this.lock();
+        try {
+            // the log may have changed since it was opened without the lock
+            this.journal.close();
+            this.journal.open(this.getSnapshotChecksum());
+            this.version = FileVersion.of(this.file.toPath());
+        } finally {
+            this.unlock();
+        }
+    }
+
+    public Durability getDurability() {
+        return this.durability;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public long getDelayMillis() {
+        return this.delayMillis;
+    }
+
+    public int getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
+
+    /**
+     * Retrieves tasks from the database, skipping the first line in the database (skips data headers).
+     * Changes recorded in the log since the database was last written are replayed on top.
+     * @return ArrayList containing all existing tasks from the database.
+     * @throws FileNotFoundException if file cannot be found.
+     */
+    @Override
+    public ArrayList<Task> getFileContents() throws FileNotFoundException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        long checksum = this.readSnapshot(tasks::add);
+
+        Journal log = this.journal != null ? this.journal : new Journal(this.filePath + ".log");
+        if (log.exists()) {
+            try {
+                ArrayList<Mutation> records = log.readRecords(checksum);
+                for (Mutation m : records) {
+                    m.applyTo(tasks);
+                }
+                this.noteIds(records);
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading database log!");
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Hands every task in the database to the visitor in order, without collecting them into a list first.
+     * If the log holds changes that are not yet part of the database, the tasks are loaded in full instead.
+     * @param visitor callback receiving each task.
+     * @throws FileNotFoundException if file cannot be found.
+     */
+    @Override
+    public void forEachTask(Consumer<? super Task> visitor) throws FileNotFoundException {
+        Journal log = this.journal != null ? this.journal : new Journal(this.filePath + ".log");
+        try {
+            if (log.hasRecords()) {
+                this.getFileContents().forEach(visitor);
+            } else {
+                this.readSnapshot(visitor);
+            }
+            if (this.sharedLock != null) {
+                this.catchUpWithFiles();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading database log!");
+        }
+    }
+
+    /**
+     * Streams the tasks of the database file (without the log) to the visitor.
+     * @return CRC32 checksum of the database file.
+     */
+    private long readSnapshot(Consumer<? super Task> visitor) throws FileNotFoundException {
+        try (CsvTaskReader reader = new CsvTaskReader(this.file.toPath())) {
+            reader.forEach(visitor);
+            this.snapshotChecksum = reader.getChecksum();
+            this.nextId = Math.max(this.nextId, reader.getNextId());
+            return this.snapshotChecksum;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(this.filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading database!");
+        }
+    }
+
+    /**
+     * Rewrites the database file and replaces all data with tasks from its argument.
+     * The new contents are written to a temporary file first and then moved over the database,
+     * so the database is never left half-written. Any logged changes are already part of the new
+     * contents, so the log is emptied as well. The header line ends in the next id (see getNextId).
+     * @param database list of tasks.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    @Override
+    public synchronized void updateFileContents(List<? extends Task> database) throws IOException {
+        for (int i = 0; i < database.size(); i++) {
+            this.nextId = Math.max(this.nextId, database.get(i).id + 1);
+        }
+        String headers = HEADERS + ",next_id=" + this.nextId + "\n";
+        this.snapshotChecksum = this.snapshotWriter.write(this.file.toPath(), headers, database);
+        if (this.journal != null) {
+            this.journal.reset(this.snapshotChecksum);
+        }
+        if (this.sharedLock != null) {
+            this.version = FileVersion.of(this.file.toPath());
+        }
+        this.pendingChanges = 0;
+    }
+
+    /**
+     * Persists a single change. In journaled mode only the change itself is appended to the log
+     * (compacting the log once it grows past the threshold); otherwise the whole database is rewritten.
+     * @param database list of tasks, with the change already applied.
+     * @param mutation the change that was applied.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    @Override
+    public synchronized void commit(List<? extends Task> database, Mutation mutation) throws IOException {
+        this.commitAll(database, List.of(mutation));
+    }
+
+    /**
+     * Persists several changes like commit(), but appends them to the log in one write
+     * (or rewrites the database only once).
+     * @param database list of tasks, with the changes already applied.
+     * @param mutations the changes that were applied, in order.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    @Override
+    public synchronized void commitAll(List<? extends Task> database, List<Mutation> mutations) throws IOException {
+        this.rethrowFlushError();
+        if (mutations.isEmpty()) {
+            return;
+        }
+        this.noteIds(mutations);
+        if (this.durability == Durability.DEFERRED) {
+            this.deferredDatabase = database;
+            this.pendingChanges += mutations.size();
+            if (this.checkpointInterval > 0 && this.pendingChanges >= this.checkpointInterval) {
+                this.compact(database);
+            }
+            return;
+        }
+        if (this.journal == null) {
+            this.updateFileContents(database);
+            return;
+        }
+        this.journal.appendAll(mutations);
+        if (this.journal.getSize() >= Math.max(this.compactThreshold, database.size())) {
+            this.compact(database);
+            return;
+        }
+        if (this.durability != Durability.GROUP_COMMIT) {
+            return;
+        }
+        this.pendingChanges += mutations.size();
+        if (this.pendingChanges >= this.batchSize) {
+            if (!this.isFlushRequested) {
+                this.isFlushRequested = true;
+                this.flusher.execute(this::flushPending);
+            }
+        } else if (!this.isFlushScheduled) {
+            this.isFlushScheduled = true;
+            this.flusher.schedule(this::flushPending, this.delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes every change handed to storage so far and forces it onto the disk.
+     * Should be called before the application exits.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        this.rethrowFlushError();
+        if (this.durability == Durability.DEFERRED && this.pendingChanges > 0) {
+            this.compact(this.deferredDatabase);
+        }
+        if (this.journal != null) {
+            this.journal.force();
+        }
+        this.pendingChanges = 0;
+    }
+
+    /**
+     * In shared mode, takes the lock on the database. See Storage.lock.
+     * @throws IOException if the database cannot be locked.
+     */
+    @Override
+    public void lock() throws IOException {
+        // not synchronized, so that storage stays usable while waiting for another process
+        if (this.sharedLock != null) {
+            this.sharedLock.lock();
+        }
+    }
+
+    @Override
+    public void unlock() throws IOException {
+        if (this.sharedLock != null) {
+            this.sharedLock.unlock();
+        }
+    }
+
+    /**
+     * Reports the changes other processes have made to a shared database, without reading it in full
+     * where possible. Whether the database file was rewritten is told from its modification time, size and
+     * file key alone; if it was not, the changes are the records appended to the log since it was last read.
+     * @return changes made by other processes, or null if the database was rewritten and has to be reloaded.
+     * @throws IOException if the log cannot be read.
+     */
+    @Override
+    public synchronized List<Mutation> pollChanges() throws IOException {
+        if (this.sharedLock == null) {
+            return List.of();
+        }
+        if (!FileVersion.of(this.file.toPath()).isSameAs(this.version)) {
+            return null;
+        }
+        ArrayList<Mutation> changes = this.journal.readNewRecords();
+        this.noteIds(changes);
+        return changes;
+    }
+
+    /**
+     * The next id is taken from the header line, raised by every task added in the log or handed to storage
+     * since, including those deleted again: until the log is compacted, their add records are what keep
+     * their ids from being handed out again.
+     */
+    @Override
+    public synchronized int getNextId() {
+        return this.nextId;
+    }
+
+    /**
+     * Syncs all changes, stops the background writer and closes the log. Storage must not be used afterwards.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.sync();
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            this.flusher = null;
+        }
+        if (this.journal != null) {
+            this.journal.close();
+        }
+        if (this.sharedLock != null) {
+            this.sharedLock.close();
+        }
+    }
+
+    private void noteIds(List<Mutation> mutations) {
+        for (Mutation mutation : mutations) {
+            if (mutation.getTask() != null) {
+                this.nextId = Math.max(this.nextId, mutation.getTask().id + 1);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes waiting in group-commit mode. Runs on the background writer.
+     */
+    private synchronized void flushPending() {
+        this.isFlushRequested = false;
+        this.isFlushScheduled = false;
+        if (this.journal == null || this.pendingChanges == 0) {
+            return;
+        }
+        try {
+            this.journal.flush();
+            this.pendingChanges = 0;
+        } catch (IOException e) {
+            this.flushError = e;
+        }
+    }
+
+    private void rethrowFlushError() throws IOException {
+        if (this.flushError != null) {
+            IOException e = this.flushError;
+            this.flushError = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all tasks into the database and empties the log.
+     * @param database list of tasks.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    public synchronized void compact(List<? extends Task> database) throws IOException {
+        this.updateFileContents(database);
+    }
+
+    /**
+     * Takes note of the database files as they are now, after every task has been read from them,
+     * so that pollChanges only reports changes made after this.
+     */
+    private synchronized void catchUpWithFiles() throws IOException {
+        this.journal.close();
+        this.journal.open(this.snapshotChecksum);
+        this.version = FileVersion.of(this.file.toPath());
+    }
+
+    /**
+     * @return CRC32 checksum of the database file, used to tie the log to the snapshot it applies to.
+     */
+    private long getSnapshotChecksum() {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(this.file.toPath()));
+            return crc.getValue();
+        } catch (IOException e) {
+            throw new RuntimeException("File was not found!");
+        }
+    }
+
+    /**
+     * Converts a task into a row of the database, without the trailing newline.
+     * @param t task to be converted.
+     * @return String of the form "type,is_checked,task_name,time1,time2,tags".
+     */
+    static String toCsvRow(Task t) {
+        StringBuilder row = new StringBuilder();
+        appendCsvRow(row, t);
+        return row.toString();
+    }
+
+    /**
+     * Appends a task as a row of the database, without the trailing newline.
+     * @param row StringBuilder to append to.
+     * @param t task to be converted.
+     */
+    static void appendCsvRow(StringBuilder row, Task t) {
+        row.append(t.id).append(',').append(t.type).append(',').append(t.isDone ? '1' : '0').append(',').append(t.name).append(',');
+        switch (t.type) {
+        case "D" -> {
+            IsoDateTime.appendIso(row, ((Deadline) t).getDeadlineEpochSecond());
+            row.append(',').append(NA_DATA);
+        }
+        case "E" -> {
+            IsoDateTime.appendIso(row, ((Event) t).getStartEpochSecond());
+            row.append(',');
+            IsoDateTime.appendIso(row, ((Event) t).getEndEpochSecond());
+        }
+        default -> row.append(NA_DATA).append(',').append(NA_DATA);
+        }
+        row.append(',');
+        for (int i = 0; i < t.tags.size(); i++) {
+            if (i != 0) {
+                row.append(',');
+            }
+            row.append(t.tags.get(i));
+        }
+    }
+
+    /**
+     * Converts a row of the database back into a task.
+     * @param row String of the form "id,type,is_checked,task_name,time1,time2,tags", where the id
+     *            is missing from rows written before tasks had ids.
+     * @return Task described by the row (with id 0 if it has none), or null if the task type is unknown.
+     */
+    static Task parseCsvRow(String row) {
+        String[] array = row.split(",");
+        int first = Character.isDigit(row.charAt(0)) ? 1 : 0;
+        String taskType = array[first];
+        int isChecked = Integer.parseInt(array[first + 1]);
+        String taskName = array[first + 2];
+        ArrayList<String> tags = new ArrayList<>();
+        for (int i = first + 5; i < array.length; i++) {
+            tags.add(array[i]);
+        }
+
+        Task t = switch (taskType) {
+        case "T" -> new Todo(taskName, isChecked == 1, tags);
+        case "D" -> new Deadline(taskName, isChecked == 1, IsoDateTime.parseEpochSecond(array[first + 3]), tags);
+        case "E" -> new Event(taskName, isChecked == 1, IsoDateTime.parseEpochSecond(array[first + 3]),
+                IsoDateTime.parseEpochSecond(array[first + 4]), tags);
+        default -> null;
+        };
+        if (t != null && first == 1) {
+            t.setId(Integer.parseInt(array[0]));
+        }
+        return t;
+    }
+
+    /**
+     * Identity of the database file, compared to tell whether another process has rewritten it.
+     * Every rewrite moves a new file into place, so its file key changes even if its modification time
+     * and size happen to stay the same.
+     */
+    private static class FileVersion {
+        private final FileTime lastModified;
+        private final long size;
+        private final Object fileKey;
+
+        private FileVersion(FileTime lastModified, long size, Object fileKey) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        static FileVersion of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileVersion(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey());
+        }
+
+        boolean isSameAs(FileVersion other) {
+            return other != null && this.lastModified.equals(other.lastModified) && this.size == other.size
+                    && Objects.equals(this.fileKey, other.fileKey);
+        }
+    }
+}
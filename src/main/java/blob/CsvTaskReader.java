@@ -0,0 +1,286 @@
+package blob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Streams tasks out of a database file one row at a time.
+ * Rows are split into fields in place, directly on the bytes read from the file, so only the
+ * strings that end up inside a task are ever allocated; dates are turned into epoch seconds without
+ * creating any string at all. The header line is only read for the next id it may end in
+ * (e.g. ',next_id=42'), and rows may either start with the task's id or (in databases written before
+ * tasks had ids) with its type.
+ * A CRC32 checksum of every byte read is kept, so that the journal can be matched against the snapshot.
+ */
+public class CsvTaskReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIXED_FIELDS = 5;
+    private static final String NEXT_ID_HEADER = ",next_id=";
+
+    /**
+     * Reusable view of a field of the current line as characters. Only used for dates, which are plain ASCII.
+     */
+    private static class AsciiField implements CharSequence {
+        private byte[] bytes;
+        private int start;
+        private int end;
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (this.bytes[this.start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return this.toString().subSequence(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(this.bytes, this.start, this.length(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private final AsciiField fieldChars = new AsciiField();
+    private final int[] fieldStarts = new int[FIXED_FIELDS];
+    private final int[] fieldEnds = new int[FIXED_FIELDS];
+    private byte[] bytes = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+    private int fieldCount;
+    private boolean isEndOfFile;
+    private int nextId;
+
+    public CsvTaskReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (this.nextLine()) {
+            String headers = new String(this.bytes, this.lineStart, this.lineEnd - this.lineStart,
+                    StandardCharsets.UTF_8);
+            int at = headers.lastIndexOf(NEXT_ID_HEADER);
+            if (at >= 0) {
+                try {
+                    this.nextId = Integer.parseInt(headers.substring(at + NEXT_ID_HEADER.length()));
+                } catch (NumberFormatException e) {
+                    // left at 0, so that the next id is worked out from the tasks instead
+                }
+            }
+        }
+    }
+
+    /**
+     * @return next id given in the header line, or 0 if it gives none (e.g. in databases written before it did).
+     */
+    public int getNextId() {
+        return this.nextId;
+    }
+
+    /**
+     * Reads the next task in the file. Blank rows and rows of an unknown task type are skipped.
+     * @return the next Task, or null once the end of the file is reached.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if a row has fewer fields than required.
+     */
+    public Task next() throws IOException {
+        while (this.nextLine()) {
+            Task t = this.parseLine();
+            if (t != null) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands every remaining task in the file to the visitor, without keeping any of them.
+     * @param visitor callback receiving each task in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public void forEach(Consumer<? super Task> visitor) throws IOException {
+        Task t;
+        while ((t = this.next()) != null) {
+            visitor.accept(t);
+        }
+    }
+
+    /**
+     * @return CRC32 checksum of all bytes read so far; of the whole file once next() has returned null.
+     */
+    public long getChecksum() {
+        return this.crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Finds the next line and stores its bounds (excluding the line terminator) in lineStart and lineEnd.
+     * @return false if there are no more lines.
+     */
+    private boolean nextLine() throws IOException {
+        int scanFrom = this.position;
+        while (true) {
+            for (int i = scanFrom; i < this.limit; i++) {
+                if (this.bytes[i] == '\n') {
+                    this.setLine(this.position, i);
+                    this.position = i + 1;
+                    return true;
+                }
+            }
+            if (this.isEndOfFile) {
+                if (this.position == this.limit) {
+                    return false;
+                }
+                this.setLine(this.position, this.limit);
+                this.position = this.limit;
+                return true;
+            }
+            scanFrom = this.fill();
+        }
+    }
+
+    private void setLine(int start, int end) {
+        this.lineStart = start;
+        this.lineEnd = end > start && this.bytes[end - 1] == '\r' ? end - 1 : end;
+        this.lineNumber++;
+    }
+
+    /**
+     * Moves the unread part of the current line to the front of the buffer (growing it if the line
+     * does not fit) and reads more of the file behind it.
+     * @return index from which scanning for the end of the line should resume.
+     */
+    private int fill() throws IOException {
+        int unread = this.limit - this.position;
+        if (unread == this.bytes.length) {
+            byte[] larger = new byte[this.bytes.length * 2];
+            System.arraycopy(this.bytes, this.position, larger, 0, unread);
+            this.bytes = larger;
+        } else {
+            System.arraycopy(this.bytes, this.position, this.bytes, 0, unread);
+        }
+        this.position = 0;
+        this.limit = unread;
+        int read = this.channel.read(ByteBuffer.wrap(this.bytes, this.limit, this.bytes.length - this.limit));
+        if (read < 0) {
+            this.isEndOfFile = true;
+        } else {
+            this.crc.update(this.bytes, this.limit, read);
+            this.limit += read;
+        }
+        return unread;
+    }
+
+    /**
+     * Converts the current line into a task.
+     * @return Task described by the line, or null if the line is blank or of an unknown task type.
+     */
+    private Task parseLine() {
+        if (this.lineStart == this.lineEnd) {
+            return null;
+        }
+        // rows written before tasks had ids start with the type instead of the id
+        int id = 0;
+        int i = this.lineStart;
+        while (i < this.lineEnd && this.bytes[i] >= '0' && this.bytes[i] <= '9') {
+            id = id * 10 + (this.bytes[i] - '0');
+            i++;
+        }
+        if (i == this.lineStart || i == this.lineEnd || this.bytes[i] != ',') {
+            id = 0;
+            i = this.lineStart;
+        } else {
+            i++;
+        }
+        int field = 0;
+        int fieldStart = i;
+        while (field < FIXED_FIELDS && i <= this.lineEnd) {
+            if (i == this.lineEnd || this.bytes[i] == ',') {
+                this.fieldStarts[field] = fieldStart;
+                this.fieldEnds[field] = i;
+                field++;
+                fieldStart = i + 1;
+            }
+            i++;
+        }
+        this.fieldCount = field;
+        if (field < 3) {
+            throw new IllegalStateException("Line " + this.lineNumber + " of the database is missing fields!");
+        }
+        if (this.fieldEnds[0] - this.fieldStarts[0] != 1) {
+            return null;
+        }
+        byte type = this.bytes[this.fieldStarts[0]];
+        boolean isDone = this.bytes[this.fieldStarts[1]] == '1';
+        String name = this.field(2);
+        ArrayList<String> tags = this.readTags(fieldStart);
+
+        Task t = switch (type) {
+        case 'T' -> new Todo(name, isDone, tags);
+        case 'D' -> new Deadline(name, isDone, this.epochSecondField(3), tags);
+        case 'E' -> new Event(name, isDone, this.epochSecondField(3), this.epochSecondField(4), tags);
+        default -> null;
+        };
+        if (t != null) {
+            t.setId(id);
+        }
+        return t;
+    }
+
+    /**
+     * Reads the comma-separated tags that follow the fixed fields, skipping empty ones.
+     */
+    private ArrayList<String> readTags(int from) {
+        ArrayList<String> tags = new ArrayList<>(0);
+        int tagStart = from;
+        for (int i = from; i <= this.lineEnd; i++) {
+            if (i == this.lineEnd || this.bytes[i] == ',') {
+                if (i > tagStart) {
+                    tags.add(new String(this.bytes, tagStart, i - tagStart, StandardCharsets.UTF_8));
+                }
+                tagStart = i + 1;
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Reads a date and time field straight off the buffer, without creating a String for it.
+     */
+    private long epochSecondField(int index) {
+        if (index >= this.fieldCount) {
+            throw new IllegalStateException("Line " + this.lineNumber + " of the database is missing fields!");
+        }
+        this.fieldChars.bytes = this.bytes;
+        this.fieldChars.start = this.fieldStarts[index];
+        this.fieldChars.end = this.fieldEnds[index];
+        return IsoDateTime.parseEpochSecond(this.fieldChars);
+    }
+
+    private String field(int index) {
+        if (index >= this.fieldCount) {
+            throw new IllegalStateException("Line " + this.lineNumber + " of the database is missing fields!");
+        }
+        return new String(this.bytes, this.fieldStarts[index], this.fieldEnds[index] - this.fieldStarts[index],
+                StandardCharsets.UTF_8);
+    }
+}
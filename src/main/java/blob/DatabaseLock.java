@@ -0,0 +1,78 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a database shared between processes, taken with FileChannel.lock on a file next to
+ * the database ('database.csv.lock'). The database itself cannot be locked, as every rewrite moves a new
+ * file over it. A process cannot hold two FileLocks on the same file, so threads of this process (and other
+ * DatabaseLocks on the same file) queue up on a lock of their own first. Calls may be nested.
+ */
+public class DatabaseLock {
+    private static final ConcurrentHashMap<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final ReentrantLock processLock;
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    /**
+     * @param filePath path of the lock file, which is created if it does not exist.
+     */
+    public DatabaseLock(String filePath) {
+        this.path = Path.of(filePath).toAbsolutePath().normalize();
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(this.path, p -> new ReentrantLock());
+    }
+
+    /**
+     * Waits until no other process or thread holds the lock, and takes it.
+     * @throws IOException if the lock file cannot be opened or locked.
+     */
+    public void lock() throws IOException {
+        this.processLock.lock();
+        if (this.processLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            if (this.channel == null) {
+                this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            this.fileLock = this.channel.lock();
+        } catch (IOException | RuntimeException e) {
+            this.processLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the lock taken by the matching call to lock().
+     * @throws IOException if the lock file cannot be unlocked.
+     */
+    public void unlock() throws IOException {
+        try {
+            if (this.processLock.getHoldCount() == 1 && this.fileLock != null) {
+                this.fileLock.release();
+                this.fileLock = null;
+            }
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the lock file, releasing the lock if it is still held.
+     * @throws IOException if the lock file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+
+/**
+ * Watches the folder of a shared database (see CsvStorage.enableSharedMode) on a background thread, and
+ * calls back whenever the database or its log may have been changed, e.g. with TaskList.refresh so that
+ * changes made by other processes show straight away. Events arriving together are handled with a single call.
+ * Changes made by this process are reported too; catching up with them then finds nothing to do.
+ * Some file systems (e.g. network drives) report no events for changes made by other machines, in which case
+ * those changes are still caught up with before the next change made here.
+ */
+public class DatabaseWatcher {
+    private final WatchService watchService;
+
+    /**
+     * Starts watching the database.
+     * @param filePath path of the .csv database.
+     * @param onChange callback run on the background thread after the database or its log has changed.
+     * @throws IOException if the folder of the database cannot be watched.
+     */
+    public DatabaseWatcher(String filePath, Runnable onChange) throws IOException {
+        Path database = Path.of(filePath).toAbsolutePath();
+        Set<Path> fileNames = Set.of(database.getFileName(), Path.of(database.getFileName() + ".log"));
+        this.watchService = database.getFileSystem().newWatchService();
+        database.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> this.watch(fileNames, onChange), "blob-database-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the database.
+     * @throws IOException if the watch service cannot be closed.
+     */
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    private void watch(Set<Path> fileNames, Runnable onChange) {
+        try {
+            while (true) {
+                WatchKey key = this.watchService.take();
+                boolean isChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // an overflow means events were lost, any of which may have been for the database
+                    isChanged = isChanged || event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || fileNames.contains((Path) event.context());
+                }
+                key.reset();
+                if (isChanged) {
+                    this.runQuietly(onChange);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the watcher was closed
+        }
+    }
+
+    private void runQuietly(Runnable onChange) {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            // e.g. "Error reading database!", which the next event or change made here tries again
+        }
+    }
+}
@@ -1,45 +1,62 @@
 package blob;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 /**
  * Represents a Task that has a deadline set.
  */
 public class Deadline extends Task {
+    private long deadlineEpochSecond;
     private LocalDateTime deadline;
+
     public Deadline(String name, boolean isDone, String deadline, ArrayList<String> tags) {
         super(name, isDone, tags);
         this.deadline = LocalDateTime.parse(deadline);
         assert this.deadline.isAfter(LocalDateTime.now()) : "Deadline of task is already in the past!";
+        this.deadlineEpochSecond = TimeIndex.toEpochSecond(this.deadline);
+        super.type = "D";
+    }
+
+    /**
+     * Creates a deadline read back from the database. Its LocalDateTime is only created once it is
+     * first needed, so loading a database does not parse every date.
+     * @param deadlineEpochSecond deadline in epoch seconds (see IsoDateTime).
+     */
+    Deadline(String name, boolean isDone, long deadlineEpochSecond, ArrayList<String> tags) {
+        super(name, isDone, tags);
+        this.deadlineEpochSecond = deadlineEpochSecond;
         super.type = "D";
     }
 
     /**
-     * @return String representation of the deadline task in the form
-     * "[D] ['completion status] 'task name' (by: 'MMM d HH:mm')"
+     * Appends the task in the form "[D]['completion status'] 'task name' (by: 'MMM d HH:mm') - #tag1 #tag2...".
      */
     @Override
-    public String toString() {
-        if (this.tags.isEmpty()) {
-            return "[D]" + "[" + this.check() + "] " + this.name +
-                    " (by: " + deadline.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) + ")";
-        }
-        StringBuilder tags = new StringBuilder("");
-        for (int i = 0; i < this.tags.size(); i++) {
-            String tag = this.tags.get(i);
-            tags.append("#" + tag + " ");
-        }
-        return "[D]" + "[" + this.check() + "] " + this.name +
-                " (by: " + deadline.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) + ") - " +
-                tags.toString();
+    public void appendTo(StringBuilder s) {
+        s.append("[D][").append(this.check()).append("] ").append(this.name).append(" (by: ");
+        appendDateTime(s, this.getDeadline());
+        s.append(')');
+        this.appendTags(s);
     }
 
     /**
      * @return LocalDateTime of the tasks deadline
      */
     public LocalDateTime getDeadline() {
-        return this.deadline;
+        // read once, as tasks may be shared between threads (see TaskList.snapshot)
+        LocalDateTime deadline = this.deadline;
+        if (deadline == null) {
+            deadline = IsoDateTime.toLocalDateTime(this.deadlineEpochSecond);
+            this.deadline = deadline;
+        }
+        return deadline;
+    }
+
+    /**
+     * @return deadline of the task in epoch seconds, without creating a LocalDateTime.
+     */
+    public long getDeadlineEpochSecond() {
+        return this.deadlineEpochSecond;
     }
 }
@@ -17,6 +17,8 @@ import javafx.scene.layout.HBox;
 /**
  * Represents a dialog box consisting of an ImageView to represent the speaker's face
  * and a label containing text from the speaker.
+ * Loading the FXML is by far the most expensive part of a dialog box, so a dialog box can be
+ * reused for another message through setMessage instead of creating a new one (see DialogCell).
  */
 public class DialogBox extends HBox {
     @FXML
@@ -24,7 +26,12 @@ public class DialogBox extends HBox {
     @FXML
     private ImageView displayPicture;
 
-    private DialogBox(String text, Image img) {
+    private boolean isFlipped;
+
+    /**
+     * Creates an empty dialog box, with the ImageView on the right.
+     */
+    public DialogBox() {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
             fxmlLoader.setController(this);
@@ -33,28 +40,42 @@ public class DialogBox extends HBox {
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
 
+    /**
+     * Shows a message in the dialog box.
+     * @param text text of the message.
+     * @param img picture of the speaker.
+     * @param isFlipped true if the ImageView should be on the left and text on the right.
+     */
+    public void setMessage(String text, Image img, boolean isFlipped) {
         dialog.setText(text);
         displayPicture.setImage(img);
+        if (isFlipped != this.isFlipped) {
+            this.flip();
+        }
     }
 
     /**
-     * Flips the dialog box such that the ImageView is on the left and text on the right.
+     * Flips the dialog box such that the ImageView and text swap sides.
      */
     private void flip() {
         ObservableList<Node> tmp = FXCollections.observableArrayList(this.getChildren());
         Collections.reverse(tmp);
         getChildren().setAll(tmp);
-        setAlignment(Pos.TOP_LEFT);
+        this.isFlipped = !this.isFlipped;
+        setAlignment(this.isFlipped ? Pos.TOP_LEFT : Pos.TOP_RIGHT);
     }
 
     public static DialogBox getUserDialog(String text, Image img) {
-        return new DialogBox(text, img);
+        var dialogBox = new DialogBox();
+        dialogBox.setMessage(text, img, false);
+        return dialogBox;
     }
 
     public static DialogBox getBlobDialog(String text, Image img) {
-        var dialogBox = new DialogBox(text, img);
-        dialogBox.flip();
+        var dialogBox = new DialogBox();
+        dialogBox.setMessage(text, img, true);
         return dialogBox;
     }
 }
\ No newline at end of file
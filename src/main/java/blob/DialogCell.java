@@ -0,0 +1,46 @@
+package blob;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+
+/**
+ * Shows a ChatMessage of the conversation as a DialogBox.
+ * The ListView only creates enough cells to fill its visible area and reuses them while scrolling,
+ * so every cell loads the dialog box FXML once, however long the conversation grows.
+ */
+public class DialogCell extends ListCell<ChatMessage> {
+    private static final double SCROLL_BAR_WIDTH = 20.0;
+
+    private final DialogBox dialogBox = new DialogBox();
+    private final Image userImg;
+    private final Image blobImg;
+
+    /**
+     * @param listView ListView the cell belongs to, whose width the dialog box follows.
+     * @param userImg picture of the user.
+     * @param blobImg picture of Blob.
+     */
+    public DialogCell(ListView<ChatMessage> listView, Image userImg, Image blobImg) {
+        this.userImg = userImg;
+        this.blobImg = blobImg;
+        // lets long messages wrap within the list instead of widening it
+        this.setPrefWidth(0);
+        this.dialogBox.prefWidthProperty().bind(listView.widthProperty().subtract(SCROLL_BAR_WIDTH));
+    }
+
+    @Override
+    protected void updateItem(ChatMessage message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        if (isEmpty || message == null) {
+            this.setGraphic(null);
+            return;
+        }
+        if (message.isFromUser()) {
+            this.dialogBox.setMessage(message.getText(), this.userImg, false);
+        } else {
+            this.dialogBox.setMessage(message.getText(), this.blobImg, true);
+        }
+        this.setGraphic(this.dialogBox);
+    }
+}
@@ -0,0 +1,23 @@
+package blob;
+
+/**
+ * Describes when changes handed to Storage are guaranteed to reach the database files.
+ * Regardless of the mode, Storage.sync() forces every change written so far onto the disk.
+ */
+public enum Durability {
+    /**
+     * Every change is written before the command returns, so it survives the application crashing.
+     */
+    IMMEDIATE,
+    /**
+     * Changes are collected in memory and written together by a background writer once a batch fills up
+     * or a delay passes, whichever comes first. Changes that were not yet written are lost on a crash.
+     */
+    GROUP_COMMIT,
+    /**
+     * Changes are only kept in memory and the whole database is written at checkpoints (every so many
+     * changes) and on sync(). Meant for scripted bulk changes, where everything since the last
+     * checkpoint is lost on a crash.
+     */
+    DEFERRED
+}
@@ -1,7 +1,6 @@
 package blob;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 /**
@@ -10,6 +9,8 @@ import java.util.ArrayList;
  * Requires a name, boolean value to check if its done, and string representations of its start and end timings for its constructor
  */
 public class Event extends Task {
+    private long startEpochSecond;
+    private long endEpochSecond;
     private LocalDateTime start;
     private LocalDateTime end;
 
@@ -19,41 +20,74 @@ public class Event extends Task {
         assert this.start.isAfter(LocalDateTime.now()) : "This event's start time is already in the past!";
         this.end = LocalDateTime.parse(end);
         assert this.end.isAfter(this.start) : "This event ends earlier than it begins? How can that be?";
+        this.startEpochSecond = TimeIndex.toEpochSecond(this.start);
+        this.endEpochSecond = TimeIndex.toEpochSecond(this.end);
         super.type = "E";
     }
 
     /**
-     * @return String representation of the Event task in the form "[E] ['completion status'] 'task name' (from: 'MM d HH:mm' to: 'MM d HH:mm')"
+     * Creates an event read back from the database. Its LocalDateTimes are only created once they are
+     * first needed, so loading a database does not parse every date.
+     * @param startEpochSecond start in epoch seconds (see IsoDateTime).
+     * @param endEpochSecond end in epoch seconds.
+     */
+    Event(String name, boolean isDone, long startEpochSecond, long endEpochSecond, ArrayList<String> tags) {
+        super(name, isDone, tags);
+        this.startEpochSecond = startEpochSecond;
+        this.endEpochSecond = endEpochSecond;
+        super.type = "E";
+    }
+
+    /**
+     * Appends the task in the form
+     * "[E]['completion status'] 'task name' (from: 'MMM d HH:mm' to: 'MMM d HH:mm') - #tag1 #tag2...".
      */
     @Override
-    public String toString() {
-        if (this.tags.isEmpty()) {
-            return "[E]" + "[" + this.check() + "] " + this.name +
-                    " (from: " + start.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) +
-                    " to: " + end.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) + ")";
-        }
-        StringBuilder tags = new StringBuilder("");
-        for (int i = 0; i < this.tags.size(); i++) {
-            String tag = this.tags.get(i);
-            tags.append("#" + tag + " ");
-        }
-        return "[E]" + "[" + this.check() + "] " + this.name +
-                " (from: " + start.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) +
-                " to: " + end.format(DateTimeFormatter.ofPattern("MMM d HH:mm")) + ") - " +
-                tags.toString();
+    public void appendTo(StringBuilder s) {
+        s.append("[E][").append(this.check()).append("] ").append(this.name).append(" (from: ");
+        appendDateTime(s, this.getStart());
+        s.append(" to: ");
+        appendDateTime(s, this.getEnd());
+        s.append(')');
+        this.appendTags(s);
     }
 
     /**
      * @return LocalDateTime 'start' of the task
      */
     public LocalDateTime getStart() {
-        return this.start;
+        // read once, as tasks may be shared between threads (see TaskList.snapshot)
+        LocalDateTime start = this.start;
+        if (start == null) {
+            start = IsoDateTime.toLocalDateTime(this.startEpochSecond);
+            this.start = start;
+        }
+        return start;
     }
 
     /**
      * @return LocalDateTime 'end' of the task
      */
     public LocalDateTime getEnd() {
-        return this.end;
+        LocalDateTime end = this.end;
+        if (end == null) {
+            end = IsoDateTime.toLocalDateTime(this.endEpochSecond);
+            this.end = end;
+        }
+        return end;
+    }
+
+    /**
+     * @return start of the task in epoch seconds, without creating a LocalDateTime.
+     */
+    public long getStartEpochSecond() {
+        return this.startEpochSecond;
+    }
+
+    /**
+     * @return end of the task in epoch seconds, without creating a LocalDateTime.
+     */
+    public long getEndEpochSecond() {
+        return this.endEpochSecond;
     }
 }
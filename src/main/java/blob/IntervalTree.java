@@ -0,0 +1,182 @@
+package blob;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Holds tasks spanning a time interval (events), by id, and finds those overlapping a given interval.
+ * The tree is a treap ordered by interval start, where every node also remembers the latest end
+ * within its subtree. Subtrees that end before the queried interval are skipped, so a query takes
+ * O(log n + k) expected time for k results instead of a scan over every event.
+ * Times are epoch seconds and intervals are half-open: [start, end).
+ */
+public class IntervalTree {
+    private static class Node {
+        private final int id;
+        private final long start;
+        private final long end;
+        private final long sequence;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(int id, long start, long end, long sequence, int priority) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Random random = new Random();
+    private final HashMap<Integer, Node> nodes = new HashMap<>();
+    private Node root;
+    private long nextSequence;
+
+    /**
+     * Adds a task spanning [start, end).
+     * @param id id of the task to be added.
+     * @param start start of the interval in epoch seconds.
+     * @param end end of the interval in epoch seconds.
+     */
+    public void add(int id, long start, long end) {
+        Node node = new Node(id, start, end, this.nextSequence++, this.random.nextInt());
+        this.nodes.put(id, node);
+        this.root = insert(this.root, node);
+    }
+
+    /**
+     * Removes a task previously added, if present.
+     * @param id id of the task to be removed.
+     */
+    public void remove(int id) {
+        Node node = this.nodes.remove(id);
+        if (node != null) {
+            this.root = delete(this.root, node);
+        }
+    }
+
+    /**
+     * Finds every task whose interval overlaps [from, to), in order of their start.
+     * @param from start of the queried interval in epoch seconds.
+     * @param to end of the queried interval in epoch seconds.
+     * @param found list the ids of the overlapping tasks are appended to.
+     */
+    public void findOverlapping(long from, long to, ArrayList<Integer> found) {
+        findOverlapping(this.root, from, to, found);
+    }
+
+    /**
+     * Removes every task from the tree.
+     */
+    public void clear() {
+        this.root = null;
+        this.nodes.clear();
+    }
+
+    private static void findOverlapping(Node node, long from, long to, ArrayList<Integer> found) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        findOverlapping(node.left, from, to, found);
+        if (node.start >= to) {
+            return;
+        }
+        if (node.end > from) {
+            found.add(node.id);
+        }
+        findOverlapping(node.right, from, to, found);
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.priority > root.priority) {
+            Node[] halves = split(root, node);
+            node.left = halves[0];
+            node.right = halves[1];
+            update(node);
+            return node;
+        }
+        if (isBefore(node, root)) {
+            root.left = insert(root.left, node);
+        } else {
+            root.right = insert(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    private static Node delete(Node root, Node node) {
+        if (root == node) {
+            return merge(root.left, root.right);
+        }
+        if (isBefore(node, root)) {
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before the pivot and those ordered after it.
+     */
+    private static Node[] split(Node root, Node pivot) {
+        if (root == null) {
+            return new Node[] {null, null};
+        }
+        if (isBefore(root, pivot)) {
+            Node[] halves = split(root.right, pivot);
+            root.right = halves[0];
+            update(root);
+            halves[0] = root;
+            return halves;
+        }
+        Node[] halves = split(root.left, pivot);
+        root.left = halves[1];
+        update(root);
+        halves[1] = root;
+        return halves;
+    }
+
+    /**
+     * Joins two subtrees where every node of the left one is ordered before every node of the right one.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.maxEnd = node.end;
+        if (node.left != null) {
+            node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);
+        }
+    }
+
+    private static boolean isBefore(Node a, Node b) {
+        return a.start != b.start ? a.start < b.start : a.sequence < b.sequence;
+    }
+}
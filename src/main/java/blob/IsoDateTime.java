@@ -0,0 +1,154 @@
+package blob;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts between the ISO-8601 dates and times kept in the database ('2024-09-10T13:00') and
+ * epoch seconds (in UTC, like TimeIndex), without going through LocalDateTime.
+ * Only the forms LocalDateTime.toString() produces for whole seconds within the years 0000 to 9999
+ * take the fast path; anything else is handed to LocalDateTime, which also reports malformed input.
+ */
+public class IsoDateTime {
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private static final long DAYS_PER_400_YEARS = 146_097;
+
+    private IsoDateTime() {
+    }
+
+    /**
+     * @param iso date and time in the form 'yyyy-MM-ddTHH:mm' or 'yyyy-MM-ddTHH:mm:ss'.
+     * @return the date and time in epoch seconds.
+     * @throws java.time.format.DateTimeParseException if the input is not a valid date and time.
+     */
+    public static long parseEpochSecond(CharSequence iso) {
+        int length = iso.length();
+        if ((length == 16 || length == 19) && isFastForm(iso)) {
+            int year = digits(iso, 0, 4);
+            int month = digits(iso, 5, 2);
+            int day = digits(iso, 8, 2);
+            int hour = digits(iso, 11, 2);
+            int minute = digits(iso, 14, 2);
+            int second = length == 19 ? digits(iso, 17, 2) : 0;
+            if (month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                    && hour < 24 && minute < 60 && second < 60) {
+                return toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+            }
+        }
+        return LocalDateTime.parse(iso).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Appends a date and time exactly as LocalDateTime.toString() would, e.g. '2024-09-10T13:00'.
+     * @param s StringBuilder to append to.
+     * @param epochSecond date and time in epoch seconds.
+     */
+    public static void appendIso(StringBuilder s, long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        // civil date from day count, as in LocalDate.ofEpochDay
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        long adjust = 0;
+        if (zeroDay < 0) {
+            long adjustCycles = (zeroDay + 1) / DAYS_PER_400_YEARS - 1;
+            adjust = adjustCycles * 400;
+            zeroDay += -adjustCycles * DAYS_PER_400_YEARS;
+        }
+        long yearEst = (400 * zeroDay + 591) / DAYS_PER_400_YEARS;
+        long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        if (doyEst < 0) {
+            yearEst--;
+            doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        }
+        yearEst += adjust;
+        int marchDoy0 = (int) doyEst;
+        int marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+        int month = (marchMonth0 + 2) % 12 + 1;
+        int day = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+        long year = yearEst + marchMonth0 / 10;
+        if (year < 0 || year > 9999) {
+            s.append(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC));
+            return;
+        }
+
+        int yearValue = (int) year;
+        appendDigits(s, yearValue / 100);
+        appendDigits(s, yearValue % 100);
+        s.append('-');
+        appendDigits(s, month);
+        s.append('-');
+        appendDigits(s, day);
+        s.append('T');
+        appendDigits(s, secondOfDay / 3600);
+        s.append(':');
+        appendDigits(s, secondOfDay / 60 % 60);
+        if (secondOfDay % 60 != 0) {
+            s.append(':');
+            appendDigits(s, secondOfDay % 60);
+        }
+    }
+
+    /**
+     * @return the date and time as a LocalDateTime.
+     */
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static boolean isFastForm(CharSequence iso) {
+        for (int i = 0; i < iso.length(); i++) {
+            char c = iso.charAt(i);
+            boolean isValid = switch (i) {
+            case 4, 7 -> c == '-';
+            case 10 -> c == 'T';
+            case 13, 16 -> c == ':';
+            default -> c >= '0' && c <= '9';
+            };
+            if (!isValid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digits(CharSequence iso, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            value = value * 10 + (iso.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static void appendDigits(StringBuilder s, int twoDigits) {
+        s.append((char) ('0' + twoDigits / 10)).append((char) ('0' + twoDigits % 10));
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+        case 2 -> isLeapYear(year) ? 29 : 28;
+        case 4, 6, 9, 11 -> 30;
+        default -> 31;
+        };
+    }
+
+    /**
+     * @return days since 1970-01-01, as in LocalDate.toEpochDay.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,248 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of mutations made since the database snapshot was last written.
+ * The first line of the log holds the checksum of the snapshot it applies to, so that a log left over
+ * from an older snapshot (e.g. after a crash during compaction) is never replayed on top of a newer one.
+ * Every following line is one record produced by Mutation.toRecord().
+ */
+public class Journal {
+    private static final String HEADER_PREFIX = "#snapshot=";
+
+    private Path path;
+    private FileChannel channel;
+    private int size;
+    private StringBuilder pending = new StringBuilder();
+    private boolean isBuffered;
+
+    public Journal(String filePath) {
+        this.path = Path.of(filePath);
+    }
+
+    /**
+     * @return true if a log file exists on disk.
+     */
+    public boolean exists() {
+        return Files.exists(this.path);
+    }
+
+    /**
+     * @return true if the log file holds at least one record after its header line.
+     * @throws IOException if the log cannot be read.
+     */
+    public boolean hasRecords() throws IOException {
+        if (this.size > 0) {
+            return true;
+        }
+        if (!this.exists()) {
+            return false;
+        }
+        try (FileChannel log = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(64);
+            log.read(start);
+            for (int i = 0; i < start.position(); i++) {
+                if (start.get(i) == '\n') {
+                    return log.size() > i + 1;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sets whether appended records are kept in memory until flush() is called,
+     * instead of being written straight away.
+     * @param isBuffered true to buffer records.
+     * @throws IOException if switching off buffering fails to write the records buffered so far.
+     */
+    public void setBuffered(boolean isBuffered) throws IOException {
+        this.isBuffered = isBuffered;
+        if (!isBuffered) {
+            this.flush();
+        }
+    }
+
+    /**
+     * @return number of records appended since the log was last reset.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Reads all complete records of the log, provided it belongs to the snapshot with the given checksum.
+     * A trailing record without a terminating newline was torn by a crash and is ignored.
+     * @param snapshotChecksum checksum of the snapshot the records are to be applied to.
+     * @return mutations in the order they were recorded, or an empty list if the log is stale or missing.
+     * @throws IOException if the log cannot be read.
+     */
+    public ArrayList<Mutation> readRecords(long snapshotChecksum) throws IOException {
+        ArrayList<Mutation> mutations = new ArrayList<>();
+        if (!this.exists()) {
+            return mutations;
+        }
+        String contents = Files.readString(this.path, StandardCharsets.UTF_8);
+        int lineStart = 0;
+        int lineEnd = contents.indexOf('\n');
+        if (lineEnd < 0 || !contents.substring(0, lineEnd).equals(header(snapshotChecksum))) {
+            return mutations;
+        }
+        lineStart = lineEnd + 1;
+        while ((lineEnd = contents.indexOf('\n', lineStart)) >= 0) {
+            mutations.add(Mutation.fromRecord(contents.substring(lineStart, lineEnd)));
+            lineStart = lineEnd + 1;
+        }
+        return mutations;
+    }
+
+    /**
+     * Opens the log for appending. A stale log (belonging to another snapshot) is discarded,
+     * and a torn trailing record is cut off so that new records start on a fresh line.
+     * @param snapshotChecksum checksum of the current snapshot.
+     * @throws IOException if the log cannot be opened.
+     */
+    public void open(long snapshotChecksum) throws IOException {
+        int records = this.readRecords(snapshotChecksum).size();
+        if (records == 0) {
+            this.reset(snapshotChecksum);
+            return;
+        }
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        byte[] contents = Files.readAllBytes(this.path);
+        int validLength = contents.length;
+        while (validLength > 0 && contents[validLength - 1] != '\n') {
+            validLength--;
+        }
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+        this.size = records;
+    }
+
+    /**
+     * Reads the records that other processes have appended to the log since this Journal last wrote or read it,
+     * and moves past them so that the next record is appended after theirs. Only the new end of the log is read.
+     * Meant for a log shared between processes, and to be called while holding the database lock
+     * (see CsvStorage.enableSharedMode), so a trailing record without its newline was torn by a crash
+     * and is cut off.
+     * @return mutations in the order they were recorded.
+     * @throws IOException if the log cannot be read.
+     */
+    public ArrayList<Mutation> readNewRecords() throws IOException {
+        ArrayList<Mutation> mutations = new ArrayList<>();
+        long start = this.channel.position();
+        ByteBuffer tail = ByteBuffer.allocate((int) (this.channel.size() - start));
+        while (tail.hasRemaining() && this.channel.read(tail, start + tail.position()) >= 0) {
+            // reads until the end of the log
+        }
+        byte[] bytes = tail.array();
+        int lineStart = 0;
+        for (int i = 0; i < tail.position(); i++) {
+            if (bytes[i] == '\n') {
+                mutations.add(Mutation.fromRecord(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8)));
+                lineStart = i + 1;
+            }
+        }
+        this.channel.truncate(start + lineStart);
+        this.channel.position(start + lineStart);
+        this.size += mutations.size();
+        return mutations;
+    }
+
+    /**
+     * Appends one record to the log. In buffered mode the record is only written on the next flush().
+     * @param mutation change to be recorded.
+     * @throws IOException if the record cannot be written.
+     */
+    public void append(Mutation mutation) throws IOException {
+        this.pending.append(mutation.toRecord()).append('\n');
+        this.size++;
+        if (!this.isBuffered) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Appends several changes to the log with a single write (unless buffered).
+     * @param mutations changes to be logged, in the order they were applied.
+     * @throws IOException if the log cannot be written.
+     */
+    public void appendAll(List<Mutation> mutations) throws IOException {
+        for (Mutation mutation : mutations) {
+            this.pending.append(mutation.toRecord()).append('\n');
+        }
+        this.size += mutations.size();
+        if (!this.isBuffered) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes all buffered records to the log in a single write.
+     * @throws IOException if the records cannot be written.
+     */
+    public void flush() throws IOException {
+        if (this.pending.length() == 0) {
+            return;
+        }
+        this.write(this.pending.toString());
+        this.pending.setLength(0);
+    }
+
+    /**
+     * Writes all buffered records and forces the log onto the disk.
+     * @throws IOException if the records cannot be written.
+     */
+    public void force() throws IOException {
+        this.flush();
+        if (this.channel != null) {
+            this.channel.force(false);
+        }
+    }
+
+    /**
+     * Empties the log and binds it to a new snapshot.
+     * @param snapshotChecksum checksum of the snapshot that now contains every previously logged record.
+     * @throws IOException if the log cannot be rewritten.
+     */
+    public void reset(long snapshotChecksum) throws IOException {
+        this.close();
+        this.pending.setLength(0);
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.write(header(snapshotChecksum) + "\n");
+        this.channel.force(false);
+        this.size = 0;
+    }
+
+    /**
+     * Closes the underlying file, if it is open.
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    private void write(String data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    private static String header(long snapshotChecksum) {
+        return HEADER_PREFIX + Long.toHexString(snapshotChecksum);
+    }
+}
@@ -7,13 +7,19 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
-import javafx.scene.image.Image;
 
+/**
+ * Starts the GUI. The number of messages kept in the conversation can be changed from its default
+ * with e.g. '-Dblob.historyLimit=100000'.
+ * With '-Dblob.shared=true', several instances can have the same database open at once (see Blob).
+ * With e.g. '-Dblob.groupCommit=500,50', changes are written in batches of up to 500, each change waiting
+ * at most 50 ms (see CsvStorage.enableGroupCommit).
+ */
 public class Main extends Application {
 
-    private Image userImg = new Image(this.getClass().getResourceAsStream("/images/DaUser.png"));
-    private Image blobImg = new Image(this.getClass().getResourceAsStream("/images/DaBlob.png"));
-    private Blob blob = new Blob("./database.csv", userImg, blobImg);
+    private Blob blob = new Blob("./database.csv", Boolean.getBoolean("blob.shared"),
+            System.getProperty("blob.groupCommit"));
+    private MainWindow mainWindow;
 
     @Override
     public void start(Stage stage) {
@@ -23,10 +29,20 @@ public class Main extends Application {
             Scene scene = new Scene(ap);
             stage.setScene(scene);
             stage.setTitle("Blob");
-            fxmlLoader.<MainWindow>getController().setBlob(blob);  // inject Blob instance
+            mainWindow = fxmlLoader.getController();
+            mainWindow.setHistoryLimit(Integer.getInteger("blob.historyLimit", MainWindow.DEFAULT_HISTORY_LIMIT));
+            mainWindow.setBlob(blob);  // inject Blob instance
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void stop() {
+        if (mainWindow != null) {
+            mainWindow.close();
+        }
+        blob.close();
+    }
 }
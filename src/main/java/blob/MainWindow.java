@@ -1,53 +1,162 @@
 package blob;
 
+import java.util.ArrayDeque;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 /**
  * Controller for the main GUI.
+ * The conversation is kept as a list of ChatMessages shown in a ListView, which only creates dialog boxes
+ * for the messages in view. Only the latest historyLimit messages are kept.
+ * Commands run on a CommandRunner so that the window never waits for them. Until a command replies,
+ * a pending message stands in for its reply; pressing Escape cancels the commands still running.
+ * Replies are shown part by part as they arrive, each part (of up to a few hundred lines) in a message
+ * of its own, so even a listing of every task never ends up in one huge Label.
  */
 public class MainWindow extends AnchorPane {
+    public static final int DEFAULT_HISTORY_LIMIT = 10_000;
+    private static final String PENDING_MSG = "...\n(Esc to cancel)";
+
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<ChatMessage> dialogList;
     @FXML
     private TextField userInput;
     @FXML
     private Button sendButton;
 
     private Blob blob;
+    private ObservableList<ChatMessage> messages = FXCollections.observableArrayList();
+    private int historyLimit = DEFAULT_HISTORY_LIMIT;
+    private CommandRunner runner;
+    private ArrayDeque<ChatMessage> pendingReplies = new ArrayDeque<>();
+    private ChatMessage lastReplyPart;
 
     private Image userImage = new Image(this.getClass().getResourceAsStream("/images/DaUser.png"));
     private Image dukeImage = new Image(this.getClass().getResourceAsStream("/images/DaBlob.png"));
 
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
+        dialogList.setItems(messages);
+        dialogList.setCellFactory(listView -> new DialogCell(listView, userImage, dukeImage));
+        userInput.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.ESCAPE && runner != null) {
+                runner.cancel();
+                event.consume();
+            }
+        });
     }
 
     /** Injects the Duke instance */
     public void setBlob(Blob b) {
         this.blob = b;
-        blob.run(dialogContainer);
+        this.runner = new CommandRunner(blob::reply, Platform::runLater);
+        this.addMessages(ChatMessage.fromBlob(blob.greet()));
+    }
+
+    /**
+     * Lets every command already entered finish and stops running commands. Called when the application exits.
+     */
+    public void close() {
+        if (runner == null) {
+            return;
+        }
+        try {
+            runner.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and the other containing Duke's reply and then appends them to
-     * the dialog container. Clears the user input after processing.
+     * Sets the number of messages kept in the conversation; older messages are dropped.
+     * @param historyLimit maximum number of messages, at least 2 so that a reply is never shown without its command.
+     */
+    public void setHistoryLimit(int historyLimit) {
+        assert historyLimit >= 2 : "History must hold at least a command and its reply!";
+        this.historyLimit = historyLimit;
+        this.trimHistory();
+    }
+
+    /**
+     * Adds a message echoing user input and a pending message to the conversation and scrolls down to them,
+     * then runs the command in the background. Clears the user input after processing.
      */
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
-        String response = blob.reply(dialogContainer, input);
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getBlobDialog(response, dukeImage)
-        );
+        ChatMessage pending = ChatMessage.fromBlob(PENDING_MSG);
+        pendingReplies.add(pending);
+        this.addMessages(ChatMessage.fromUser(input), pending);
+        runner.submit(input, this::showReplyPart, this::finishReply);
         userInput.clear();
     }
+
+    /**
+     * Shows the next part of the reply to the oldest command still waiting. Replies arrive in the order
+     * the commands were entered, so that is the command this part belongs to. The first part takes the place
+     * of the pending message, and every later part follows the part before it.
+     */
+    private void showReplyPart(String part) {
+        ChatMessage message = ChatMessage.fromBlob(part);
+        boolean isFirstPart = lastReplyPart == null;
+        int index = this.lastIndexOf(isFirstPart ? pendingReplies.peek() : lastReplyPart);
+        if (index < 0) {
+            // already trimmed from the history
+            messages.add(message);
+        } else if (isFirstPart) {
+            messages.set(index, message);
+            dialogList.scrollTo(index);
+        } else {
+            messages.add(index + 1, message);
+        }
+        lastReplyPart = message;
+        this.trimHistory();
+    }
+
+    /**
+     * Ends the reply to the oldest command still waiting, removing its pending message if it never replied.
+     */
+    private void finishReply() {
+        ChatMessage pending = pendingReplies.poll();
+        if (lastReplyPart == null) {
+            int index = this.lastIndexOf(pending);
+            if (index >= 0) {
+                messages.remove(index);
+            }
+        }
+        lastReplyPart = null;
+    }
+
+    /**
+     * @return index of the message, searching from the end where pending messages and replies are, or -1.
+     */
+    private int lastIndexOf(ChatMessage message) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) == message) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addMessages(ChatMessage... newMessages) {
+        messages.addAll(newMessages);
+        this.trimHistory();
+        dialogList.scrollTo(messages.size() - 1);
+    }
+
+    private void trimHistory() {
+        if (messages.size() > historyLimit) {
+            messages.remove(0, messages.size() - historyLimit);
+        }
+    }
 }
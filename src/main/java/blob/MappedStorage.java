@@ -0,0 +1,370 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage backed by a fixed-layout binary database that is accessed through memory-mapped files.
+ * The header of the record file holds the number of tasks and the next id to hand out (see getNextId).
+ * Every task is a record of RECORD_SIZE bytes in the record file: type, done flag, id, two epoch-second
+ * timestamps (deadline, or start and end) and offsets of its name and tags in a separate string heap
+ * file ('database.bin.heap'). Reading or marking the i'th task is therefore a positioned read or write,
+ * with no parsing involved. Strings that are replaced (e.g. when tagging) are left behind in the heap
+ * until the next updateFileContents.
+ * updateFileContents writes a new pair of files next to the database and moves them into place, heap first:
+ * a crash before the heap is moved leaves the old database, and one after it is finished on the next start.
+ */
+public class MappedStorage implements Storage {
+    private static final int MAGIC = 0x424C4F42; // "BLOB"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int NEXT_ID_OFFSET = 12; // left as 0 by versions 1 and 2, which did not record it
+    private static final int RECORD_SIZE = 40;
+    private static final int TYPE_OFFSET = 0;
+    private static final int DONE_OFFSET = 1;
+    private static final int ID_OFFSET = 4; // left as 0 by version 1, which had no ids
+    private static final int TIME1_OFFSET = 8;
+    private static final int TIME2_OFFSET = 16;
+    private static final int NAME_OFFSET = 24;
+    private static final int TAGS_OFFSET = 32;
+    private static final int HEAP_HEADER_SIZE = 8;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NO_TAGS = -1;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final Path recordPath;
+    private final Path heapPath;
+    private FileChannel recordChannel;
+    private FileChannel heapChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer heap;
+    private int count;
+    private int nextId;
+    private long heapEnd;
+
+    public MappedStorage(String filePath) {
+        this.recordPath = Path.of(filePath);
+        this.heapPath = Path.of(filePath + ".heap");
+        try {
+            recover(filePath);
+            this.open();
+        } catch (IOException e) {
+            throw new RuntimeException("Database file was unable to be generated!");
+        }
+    }
+
+    private void open() throws IOException {
+        // the heap is created first, so that a half-created rewrite is never mistaken for a finished one (see recover)
+        this.heapChannel = FileChannel.open(this.heapPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recordChannel = FileChannel.open(this.recordPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean isNew = this.recordChannel.size() == 0;
+        this.records = this.recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(this.recordChannel.size(), INITIAL_CAPACITY));
+        this.heap = this.heapChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(this.heapChannel.size(), INITIAL_CAPACITY));
+        if (isNew) {
+            this.records.putInt(0, MAGIC);
+            this.records.putInt(4, VERSION);
+            this.setCount(0);
+            this.setHeapEnd(HEAP_HEADER_SIZE);
+        } else {
+            assert this.records.getInt(0) == MAGIC : "File is not a Blob database!";
+            this.count = this.records.getInt(COUNT_OFFSET);
+            this.nextId = this.records.getInt(NEXT_ID_OFFSET);
+            this.heapEnd = this.heap.getLong(0);
+        }
+    }
+
+    /**
+     * @return number of tasks in the database.
+     */
+    public synchronized int getSize() {
+        return this.count;
+    }
+
+    /**
+     * Reads a single task straight from its record.
+     * @param index index of task.
+     * @return Task at that index.
+     */
+    public synchronized Task readTask(int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int record = recordPosition(index);
+        byte type = this.records.get(record + TYPE_OFFSET);
+        boolean isDone = this.records.get(record + DONE_OFFSET) == 1;
+        int id = this.records.getInt(record + ID_OFFSET);
+        String name = this.readString(this.records.getLong(record + NAME_OFFSET));
+        ArrayList<String> tags = new ArrayList<>();
+        long tagsOffset = this.records.getLong(record + TAGS_OFFSET);
+        if (tagsOffset != NO_TAGS) {
+            for (String tag : this.readString(tagsOffset).split(",")) {
+                tags.add(tag);
+            }
+        }
+
+        Task t = switch (type) {
+        case 'D' -> new Deadline(name, isDone, this.records.getLong(record + TIME1_OFFSET), tags);
+        case 'E' -> new Event(name, isDone, this.records.getLong(record + TIME1_OFFSET),
+                this.records.getLong(record + TIME2_OFFSET), tags);
+        default -> new Todo(name, isDone, tags);
+        };
+        t.setId(id);
+        return t;
+    }
+
+    @Override
+    public synchronized ArrayList<Task> getFileContents() {
+        ArrayList<Task> tasks = new ArrayList<>(this.count);
+        this.forEachTask(tasks::add);
+        return tasks;
+    }
+
+    @Override
+    public synchronized void forEachTask(Consumer<? super Task> visitor) {
+        for (int i = 0; i < this.count; i++) {
+            visitor.accept(this.readTask(i));
+        }
+    }
+
+    /**
+     * Rewrites every record and string, which also drops strings no longer referenced by any task.
+     * The database is written into new files that are then moved over the old ones, so an error or crash
+     * part-way through never leaves a partly written database behind.
+     */
+    @Override
+    public synchronized void updateFileContents(List<? extends Task> database) throws IOException {
+        String tempPath = this.recordPath + ".tmp";
+        Files.deleteIfExists(Path.of(tempPath));
+        Files.deleteIfExists(Path.of(tempPath + ".heap"));
+        MappedStorage rewritten = new MappedStorage(tempPath);
+        try {
+            for (int i = 0; i < database.size(); i++) {
+                rewritten.writeRecord(i, database.get(i));
+            }
+            rewritten.setCount(database.size());
+            int nextId = this.nextId;
+            for (int i = 0; i < database.size(); i++) {
+                nextId = Math.max(nextId, database.get(i).id + 1);
+            }
+            rewritten.setNextId(nextId);
+        } finally {
+            rewritten.close();
+        }
+        // once the heap has been moved, recover finishes moving the records should this be cut short
+        Files.move(Path.of(tempPath + ".heap"), this.heapPath, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.move(Path.of(tempPath), this.recordPath, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        this.recordChannel.close();
+        this.heapChannel.close();
+        this.open();
+    }
+
+    /**
+     * Persists a single change by touching only the records (and strings) it affects.
+     */
+    @Override
+    public synchronized void commit(List<? extends Task> database, Mutation mutation) throws IOException {
+        int index = mutation.getIndex();
+        if (mutation.getTask() != null) {
+            this.setNextId(Math.max(this.nextId, mutation.getTask().id + 1));
+        }
+        switch (mutation.getKind()) {
+        case ADD -> {
+            this.writeRecord(this.count, mutation.getTask());
+            this.setCount(this.count + 1);
+        }
+        case INSERT -> {
+            this.ensureRecordCapacity(this.count + 1);
+            this.records.put(recordPosition(index + 1), this.records, recordPosition(index),
+                    (this.count - index) * RECORD_SIZE);
+            this.writeRecord(index, mutation.getTask());
+            this.setCount(this.count + 1);
+        }
+        case DELETE -> {
+            this.records.put(recordPosition(index), this.records, recordPosition(index + 1),
+                    (this.count - index - 1) * RECORD_SIZE);
+            this.setCount(this.count - 1);
+        }
+        case MARK -> this.records.put(recordPosition(index) + DONE_OFFSET, (byte) 1);
+        case UNMARK -> this.records.put(recordPosition(index) + DONE_OFFSET, (byte) 0);
+        case TAG -> this.records.putLong(recordPosition(index) + TAGS_OFFSET,
+                this.writeString(database.get(index).displayTags()));
+        case UNTAG -> this.records.putLong(recordPosition(index) + TAGS_OFFSET, NO_TAGS);
+        }
+    }
+
+    /**
+     * Persists each change in turn, except that several deletions or insertions rewrite the database instead,
+     * since shifting the records once per deleted or inserted task would take quadratic time.
+     */
+    @Override
+    public synchronized void commitAll(List<? extends Task> database, List<Mutation> mutations) throws IOException {
+        int shifts = 0;
+        for (Mutation mutation : mutations) {
+            if (mutation.getKind() == Mutation.Kind.DELETE || mutation.getKind() == Mutation.Kind.INSERT) {
+                shifts++;
+            }
+        }
+        if (shifts > 1) {
+            this.updateFileContents(database);
+            return;
+        }
+        for (Mutation mutation : mutations) {
+            this.commit(database, mutation);
+        }
+    }
+
+    @Override
+    public synchronized int getNextId() {
+        return this.nextId;
+    }
+
+    @Override
+    public synchronized void sync() {
+        this.records.force();
+        this.heap.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.sync();
+        this.recordChannel.close();
+        this.heapChannel.close();
+    }
+
+    /**
+     * Replaces the contents of this database with the tasks of a .csv database.
+     * @param csvPath path of the .csv database.
+     * @throws IOException if either database cannot be accessed.
+     */
+    public void importCsv(String csvPath) throws IOException {
+        this.updateFileContents(new CsvStorage(csvPath).getFileContents());
+    }
+
+    /**
+     * Writes the tasks of this database into a .csv database, replacing its contents.
+     * @param csvPath path of the .csv database.
+     * @throws IOException if either database cannot be accessed.
+     */
+    public void exportCsv(String csvPath) throws IOException {
+        new CsvStorage(csvPath).updateFileContents(this.getFileContents());
+    }
+
+    /**
+     * Finishes or undoes a rewrite of the database (see updateFileContents) that was cut short, e.g. by a crash.
+     * If the new heap has already been moved into place, the new records are too; otherwise the new files,
+     * which may be incomplete, are dropped.
+     */
+    private static void recover(String filePath) throws IOException {
+        Path tempRecords = Path.of(filePath + ".tmp");
+        Path tempHeap = Path.of(filePath + ".tmp.heap");
+        if (Files.exists(tempRecords) && !Files.exists(tempHeap)) {
+            Files.move(tempRecords, Path.of(filePath), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(tempRecords);
+            Files.deleteIfExists(tempHeap);
+        }
+    }
+
+    private void writeRecord(int index, Task t) throws IOException {
+        this.ensureRecordCapacity(index + 1);
+        long nameOffset = this.writeString(t.name);
+        long tagsOffset = t.tags.isEmpty() ? NO_TAGS : this.writeString(t.displayTags());
+        long time1 = NO_TIME;
+        long time2 = NO_TIME;
+        if (t instanceof Deadline d) {
+            time1 = d.getDeadlineEpochSecond();
+        } else if (t instanceof Event e) {
+            time1 = e.getStartEpochSecond();
+            time2 = e.getEndEpochSecond();
+        }
+        int record = recordPosition(index);
+        this.records.put(record + TYPE_OFFSET, (byte) t.type.charAt(0));
+        this.records.put(record + DONE_OFFSET, (byte) (t.isDone ? 1 : 0));
+        this.records.putInt(record + ID_OFFSET, t.id);
+        this.records.putLong(record + TIME1_OFFSET, time1);
+        this.records.putLong(record + TIME2_OFFSET, time2);
+        this.records.putLong(record + NAME_OFFSET, nameOffset);
+        this.records.putLong(record + TAGS_OFFSET, tagsOffset);
+    }
+
+    /**
+     * Appends a string to the heap as its UTF-8 length followed by its bytes.
+     * @return offset of the string in the heap.
+     */
+    private long writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        long offset = this.heapEnd;
+        this.ensureHeapCapacity(offset + Integer.BYTES + bytes.length);
+        this.heap.putInt((int) offset, bytes.length);
+        this.heap.put((int) offset + Integer.BYTES, bytes);
+        this.setHeapEnd(offset + Integer.BYTES + bytes.length);
+        return offset;
+    }
+
+    private String readString(long offset) {
+        int length = this.heap.getInt((int) offset);
+        byte[] bytes = new byte[length];
+        this.heap.get((int) offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureRecordCapacity(int records) throws IOException {
+        long required = recordPosition(records);
+        if (required > this.records.capacity()) {
+            this.records.force();
+            this.records = this.recordChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    grow(this.records.capacity(), required));
+        }
+    }
+
+    private void ensureHeapCapacity(long required) throws IOException {
+        if (required > this.heap.capacity()) {
+            this.heap.force();
+            this.heap = this.heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, grow(this.heap.capacity(), required));
+        }
+    }
+
+    private void setCount(int count) {
+        this.count = count;
+        this.records.putInt(COUNT_OFFSET, count);
+    }
+
+    private void setNextId(int nextId) {
+        this.nextId = nextId;
+        this.records.putInt(NEXT_ID_OFFSET, nextId);
+    }
+
+    private void setHeapEnd(long heapEnd) {
+        this.heapEnd = heapEnd;
+        this.heap.putLong(0, heapEnd);
+    }
+
+    private static long grow(long capacity, long required) throws IOException {
+        long grown = Math.max(capacity * 2, required);
+        if (grown > Integer.MAX_VALUE) {
+            throw new IOException("Database has grown past the 2GB a single mapping can hold!");
+        }
+        return grown;
+    }
+
+    private static int recordPosition(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
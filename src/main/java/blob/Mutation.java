@@ -0,0 +1,154 @@
+package blob;
+
+import java.util.ArrayList;
+
+/**
+ * Represents a single change made to the task list, such as adding or marking a task.
+ * Mutations are what gets recorded in the database journal and are replayed on startup.
+ */
+public class Mutation {
+    /**
+     * The kinds of changes that can be made to the task list.
+     */
+    public enum Kind {
+        ADD, INSERT, DELETE, MARK, UNMARK, TAG, UNTAG
+    }
+
+    private final Kind kind;
+    private final int index;
+    private final Task task;
+    private final String tag;
+
+    private Mutation(Kind kind, int index, Task task, String tag) {
+        this.kind = kind;
+        this.index = index;
+        this.task = task;
+        this.tag = tag;
+    }
+
+    public static Mutation add(Task task) {
+        return new Mutation(Kind.ADD, -1, task, null);
+    }
+
+    /**
+     * Puts a task that keeps its id back at an index, e.g. when a deletion is undone.
+     */
+    public static Mutation insert(int index, Task task) {
+        return new Mutation(Kind.INSERT, index, task, null);
+    }
+
+    public static Mutation delete(int index) {
+        return new Mutation(Kind.DELETE, index, null, null);
+    }
+
+    public static Mutation mark(int index) {
+        return new Mutation(Kind.MARK, index, null, null);
+    }
+
+    public static Mutation unmark(int index) {
+        return new Mutation(Kind.UNMARK, index, null, null);
+    }
+
+    public static Mutation tag(int index, String tag) {
+        return new Mutation(Kind.TAG, index, null, tag);
+    }
+
+    public static Mutation untag(int index) {
+        return new Mutation(Kind.UNTAG, index, null, null);
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public Task getTask() {
+        return this.task;
+    }
+
+    public String getTag() {
+        return this.tag;
+    }
+
+    /**
+     * Applies this change to the given tasks.
+     * @param tasks tasks to be changed.
+     * @throws IndexOutOfBoundsException if the mutation refers to a task that does not exist.
+     */
+    public void applyTo(ArrayList<Task> tasks) {
+        switch (this.kind) {
+        case ADD -> tasks.add(this.task);
+        case INSERT -> tasks.add(this.index, this.task);
+        case DELETE -> tasks.remove(this.index);
+        case MARK -> tasks.get(this.index).complete();
+        case UNMARK -> tasks.get(this.index).undo();
+        case TAG -> tasks.get(this.index).tags.add(this.tag);
+        case UNTAG -> tasks.get(this.index).tags.clear();
+        }
+    }
+
+    /**
+     * @return journal record of the form "'kind','index or csv row'[,'tag' or ,'csv row']",
+     *         without a trailing newline.
+     */
+    public String toRecord() {
+        return switch (this.kind) {
+        case ADD -> "add," + CsvStorage.toCsvRow(this.task);
+        case INSERT -> "insert," + this.index + "," + CsvStorage.toCsvRow(this.task);
+        case DELETE -> "delete," + this.index;
+        case MARK -> "mark," + this.index;
+        case UNMARK -> "unmark," + this.index;
+        case TAG -> "tag," + this.index + "," + this.tag;
+        case UNTAG -> "untag," + this.index;
+        };
+    }
+
+    /**
+     * Reads a mutation back from a journal record produced by toRecord().
+     * @param record journal record.
+     * @return Mutation described by the record.
+     * @throws IllegalArgumentException if the record is malformed.
+     */
+    public static Mutation fromRecord(String record) {
+        int comma = record.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Malformed journal record: " + record);
+        }
+        String kind = record.substring(0, comma);
+        String rest = record.substring(comma + 1);
+        try {
+            switch (kind) {
+            case "add" -> {
+                return add(CsvStorage.parseCsvRow(rest));
+            }
+            case "insert" -> {
+                int rowComma = rest.indexOf(',');
+                return insert(Integer.parseInt(rest.substring(0, rowComma)),
+                        CsvStorage.parseCsvRow(rest.substring(rowComma + 1)));
+            }
+            case "delete" -> {
+                return delete(Integer.parseInt(rest));
+            }
+            case "mark" -> {
+                return mark(Integer.parseInt(rest));
+            }
+            case "unmark" -> {
+                return unmark(Integer.parseInt(rest));
+            }
+            case "tag" -> {
+                int tagComma = rest.indexOf(',');
+                return tag(Integer.parseInt(rest.substring(0, tagComma)), rest.substring(tagComma + 1));
+            }
+            case "untag" -> {
+                return untag(Integer.parseInt(rest));
+            }
+            default -> throw new IllegalArgumentException("Malformed journal record: " + record);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed journal record: " + record);
+        }
+    }
+}
@@ -1,58 +1,313 @@
 package blob;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Handles the manipulation of input from the user.
  */
 public class Parser {
+    private static final int DEFAULT_UPCOMING_COUNT = 5;
+    private static final int INITIAL_TOKENS = 8;
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    private static final int PAGE_SIZE = 50;
+    private static final int STREAM_CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * The rows of a listing asked for with 'page N' or '--limit N' and '--offset N',
+     * together with the tokens of the command that are left once those are taken out.
+     */
+    private static class Page {
+        private static final Page ALL = new Page(new String[0], 0, Integer.MAX_VALUE);
+
+        private final String[] args;
+        private final int offset;
+        private final int limit;
+
+        Page(String[] args, int offset, int limit) {
+            this.args = args;
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+
+    private final HashMap<String, Command> commands = new HashMap<>();
+
+    /**
+     * Creates a parser that understands every built-in command.
+     */
+    public Parser() {
+        this.registerCommand("bye", this::executeBye);
+        this.registerCommand("list", (StreamingCommand) this::streamList);
+        this.registerCommand("tags", this::executeTags);
+        this.registerCommand("mark", this::executeMark);
+        this.registerCommand("unmark", this::executeUnmark);
+        this.registerCommand("delete", this::executeDelete);
+        this.registerCommand("todo", this::executeTodo);
+        this.registerCommand("deadline", this::executeDeadline);
+        this.registerCommand("event", this::executeEvent);
+        this.registerCommand("find", (StreamingCommand) this::streamFind);
+        this.registerCommand("due", this::executeDue);
+        this.registerCommand("between", this::executeBetween);
+        this.registerCommand("upcoming", this::executeUpcoming);
+        this.registerCommand("tag", this::executeTag);
+        this.registerCommand("untag", this::executeUntag);
+        this.registerCommand("undo", this::executeUndo);
+        this.registerCommand("redo", this::executeRedo);
+    }
+
+    /**
+     * Makes a command available under the given verb, replacing any command already registered under it.
+     * @param verb first word of the command, matched case-insensitively.
+     * @param command handler of the command.
+     */
+    public void registerCommand(String verb, Command command) {
+        this.commands.put(verb.toLowerCase(Locale.ROOT), command);
+    }
+
+    /**
+     * @param verb first word of the user's input.
+     * @return handler registered under the verb, or null if there is none.
+     */
+    Command getCommand(String verb) {
+        Command command = this.commands.get(verb);
+        // verbs are almost always typed in lower case, so only lower-case the verb when that misses
+        return command != null ? command : this.commands.get(verb.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the heading followed by the tasks, numbered from 1, one per line.
+     */
+    private String listTasks(String heading, ArrayList<Task> tasks) {
+        return listTasks(heading, tasks, false);
+    }
+
+    private String listTasks(String heading, ArrayList<Task> tasks, boolean isShowingIds) {
+        StringBuilder s = new StringBuilder();
+        streamTasks(ReplySink.of(s), heading, tasks.size(), tasks::get, Page.ALL, isShowingIds);
+        return s.toString();
+    }
+
+    /**
+     * Writes the heading followed by the tasks on the page, numbered by their position among all tasks,
+     * into the sink a chunk of lines at a time. A line saying which tasks were shown follows
+     * if that is not all of them.
+     * @param size number of tasks.
+     * @param tasks function returning the task at a position.
+     */
+    private static void streamTasks(ReplySink sink, String heading, int size, IntFunction<Task> tasks, Page page,
+            boolean isShowingIds) {
+        int from = Math.min(page.offset, size);
+        int to = (int) Math.min(size, (long) from + page.limit);
+        StringBuilder s = new StringBuilder(STREAM_CHUNK_SIZE + 256).append(heading);
+        for (int j = from; j < to; j++) {
+            appendListItem(s, j + 1, tasks.apply(j), isShowingIds);
+            if (s.length() >= STREAM_CHUNK_SIZE) {
+                sink.write(s);
+                s.setLength(0);
+            }
+        }
+        if (from == to && size > 0) {
+            s.append(String.format("There are only %d tasks!", size));
+        } else if (from > 0 || to < size) {
+            s.append(String.format("Showing tasks %d to %d of %d.", from + 1, to, size));
+        }
+        sink.write(s);
+    }
+
+    /**
+     * Takes the paging options 'page N' (of PAGE_SIZE tasks, counting from 1), '--limit N' and '--offset N'
+     * out of the tokens of a command. 'page' not followed by a number is left alone, e.g. as a keyword.
+     * @throws NumberFormatException if a page, limit or offset is missing or not a valid number.
+     */
+    private static Page parsePage(String[] arr) {
+        ArrayList<String> args = new ArrayList<>(arr.length);
+        int offset = 0;
+        int limit = Integer.MAX_VALUE;
+        for (int i = 0; i < arr.length; i++) {
+            String token = arr[i];
+            if (token.equalsIgnoreCase("--limit") || token.equalsIgnoreCase("--offset")) {
+                if (i + 1 == arr.length) {
+                    throw new NumberFormatException("Missing number after " + token);
+                }
+                int value = Integer.parseInt(arr[++i]);
+                if (value < 0) {
+                    throw new NumberFormatException("Negative " + token);
+                }
+                if (token.equalsIgnoreCase("--limit")) {
+                    limit = value;
+                } else {
+                    offset = value;
+                }
+            } else if (i > 0 && token.equalsIgnoreCase("page") && i + 1 < arr.length && isDigits(arr[i + 1])) {
+                int number = Integer.parseInt(arr[++i]);
+                if (number < 1) {
+                    throw new NumberFormatException("Pages are counted from 1");
+                }
+                offset = (int) Math.min(Integer.MAX_VALUE, (long) (number - 1) * PAGE_SIZE);
+                limit = PAGE_SIZE;
+            } else {
+                args.add(token);
+            }
+        }
+        return new Page(args.toArray(new String[0]), offset, limit);
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return !s.isEmpty();
+    }
+
+    /**
+     * Appends a line of the form "'number'. 'task'", or "'number'. @'id' 'task'" when showing ids.
+     * Every so many lines, gives up if the command has been cancelled (see CommandRunner).
+     */
+    private static void appendListItem(StringBuilder s, int number, Task t, boolean isShowingIds) {
+        if (number % CANCEL_CHECK_INTERVAL == 0) {
+            CommandRunner.checkCancelled();
+        }
+        s.append(number).append(". ");
+        if (isShowingIds) {
+            s.append('@').append(t.getId()).append(' ');
+        }
+        t.appendTo(s);
+        s.append('\n');
+    }
+
+    /**
+     * Converts a task number ('3', counting from 1) or a task id ('@42') into the index of the task.
+     * @throws NumberFormatException if the argument is neither.
+     * @throws IndexOutOfBoundsException if there is no task with that id.
+     */
+    private static int toIndex(TaskList tasklist, String arg) {
+        if (arg.startsWith("@")) {
+            return tasklist.indexOfId(Integer.parseInt(arg.substring(1)));
+        }
+        return Integer.parseInt(arg) - 1;
+    }
+
+    /**
+     * @return reply for a task number or id (see toIndex) that does not belong to any task.
+     */
+    private static String describeMissingTask(String arg) {
+        if (arg.startsWith("@")) {
+            return String.format("There is no task with id '%s'", arg.substring(1));
+        }
+        return String.format("There is no task at task number '%d'", Integer.parseInt(arg));
+    }
+
+    public String executeBye(TaskList tasklist, String[] arr) {
+        tasklist.sync();
+        return "Bye. Hope to see you again soon!";
+    }
 
     public String executeList(TaskList tasklist, String[] arr) {
-        StringBuilder s = new StringBuilder("Here are the tasks in your list:\n");
-        for (int j = 0; j < tasklist.getSize(); j++) {
-            Task t = tasklist.getTask(j);
-            s.append(String.format("%d. %s\n", j + 1, t));
+        StringBuilder s = new StringBuilder();
+        this.streamList(tasklist, arr, ReplySink.of(s));
+        return s.toString();
+    }
+
+    public void streamList(TaskList tasklist, String[] arr, ReplySink sink) {
+        Page page;
+        try {
+            page = parsePage(arr);
+        } catch (NumberFormatException e) {
+            sink.write("Invalid Command!");
+            return;
+        }
+        String[] args = page.args;
+        // 'list /ids' also shows the id of every task
+        boolean isShowingIds = args.length > 1 && args[args.length - 1].equalsIgnoreCase("/ids");
+        // 'list #tag' only lists the tasks carrying that tag
+        if (args.length > 1 && args[1].startsWith("#") && args[1].length() > 1) {
+            String tag = args[1].substring(1);
+            ArrayList<Task> tagged = tasklist.getTasksWithTag(tag);
+            streamTasks(sink, "Here are the tasks tagged #" + tag + " in your list:\n", tagged.size(), tagged::get,
+                    page, isShowingIds);
+            return;
+        }
+        // only the tasks on the page are copied, however long the list
+        TaskSlice tasks = tasklist.snapshot(page.offset, page.limit);
+        streamTasks(sink, "Here are the tasks in your list:\n", tasks.getListSize(), tasks::get, page, isShowingIds);
+    }
+
+    public String executeTags(TaskList tasklist, String[] arr) {
+        TreeMap<String, Integer> counts = tasklist.getTagCounts();
+        if (counts.isEmpty()) {
+            return "None of your tasks are tagged yet!";
         }
+        StringBuilder s = new StringBuilder("Here are the tags in your list:\n");
+        counts.forEach((tag, count) -> s.append("#").append(tag).append(" (").append(count).append(")\n"));
         return s.toString();
     }
 
     public String executeMark(TaskList tasklist, String[] arr) {
+        if (arr.length > 1 && isSelector(arr[1])) {
+            return executeBulk(tasklist, arr[1], indices -> {
+                tasklist.markTasks(indices);
+                return String.format("Nice! I've marked %d tasks as done.", indices.length);
+            });
+        }
         StringBuilder s = new StringBuilder("");
         try {
-            int index = Integer.parseInt(arr[1]) - 1;
+            int index = toIndex(tasklist, arr[1]);
             tasklist.markTask(index);
             s.append("Nice! I've marked this task as done:\n");
             s.append(tasklist.getTask(index));
         } catch (NumberFormatException e) {
             s.append("Invalid Command!");
         } catch (IndexOutOfBoundsException e) {
-            int taskNum = Integer.parseInt(arr[1]);
-            s.append(String.format("There is no task at task number '%d'", taskNum));
+            s.append(describeMissingTask(arr[1]));
         }
         return s.toString();
     }
 
     public String executeUnmark(TaskList tasklist, String[] arr) {
+        if (arr.length > 1 && isSelector(arr[1])) {
+            return executeBulk(tasklist, arr[1], indices -> {
+                tasklist.unmarkTasks(indices);
+                return String.format("OK, I've marked %d tasks as not done yet.", indices.length);
+            });
+        }
         StringBuilder s = new StringBuilder("");
         try {
-            int index = Integer.parseInt(arr[1]) - 1;
+            int index = toIndex(tasklist, arr[1]);
             tasklist.unmarkTask(index);
             s.append("OK, I've marked this task as not done yet:\n");
             s.append(tasklist.getTask(index));
         } catch (NumberFormatException e) {
             s.append("Invalid Command!");
         } catch (IndexOutOfBoundsException e) {
-            int taskNum = Integer.parseInt(arr[1]);
-            s.append(String.format("There is no task at task number '%d'", taskNum));
+            s.append(describeMissingTask(arr[1]));
         }
         return s.toString();
     }
 
     public String executeDelete(TaskList tasklist, String[] arr) {
+        if (arr.length > 1 && isSelector(arr[1])) {
+            return executeBulk(tasklist, arr[1], indices -> {
+                tasklist.deleteTasks(indices);
+                return String.format("Noted, I've removed %d tasks.\nNow you have %d tasks in the list.",
+                        indices.length, tasklist.getSize());
+            });
+        }
         StringBuilder s = new StringBuilder();
         try {
-            int index = Integer.parseInt(arr[1]) - 1;
+            int index = toIndex(tasklist, arr[1]);
             Task t = tasklist.deleteTask(index);
             s.append("Noted, I've removed this task:\n");
             s.append(t + "\n");
@@ -60,29 +315,20 @@ public class Parser {
         } catch (NumberFormatException e) {
             s.append("Invalid Command!");
         } catch (IndexOutOfBoundsException e) {
-            int taskNum = Integer.parseInt(arr[1]);
-            s.append(String.format("There is no task at task number '%d'", taskNum));
+            s.append(describeMissingTask(arr[1]));
         }
         return s.toString();
     }
 
     public String executeTodo(TaskList tasklist, String[] arr) {
         // task name error handling
-        int i = 0;
         if (arr.length == 1) {
             return "Sorry, I am unable to generate an empty 'todo' task!";
         }
 
         StringBuilder msg = new StringBuilder("");
 
-        // for task name string
-        StringBuilder a = new StringBuilder(arr[i + 1]);
-        for (int j = i + 2; j < arr.length; j++) {
-            StringBuilder str = new StringBuilder(" " + arr[j]);
-            a = a.append(str);
-        }
-
-        Todo t = new Todo(a.toString(), false, new ArrayList<String>());
+        Todo t = new Todo(joinTokens(arr, 1, arr.length), false, new ArrayList<String>());
         tasklist.addTask(t);
         msg.append("Got it. I've added this task:\n");
         msg.append(t + "\n");
@@ -91,7 +337,6 @@ public class Parser {
     }
 
     public String executeDeadline(TaskList tasklist, String[] arr) {
-        int i = 0;
         int by = 0;
         for (int j = 0; j < arr.length; j++) {
             if (arr[j].equals("/by")) {
@@ -111,19 +356,10 @@ public class Parser {
             return "You need to add both DATE and TIME to your deadline \uD83D\uDD27! (Format: yyyy-mm-dd HH:mm)";
         }
         StringBuilder msg = new StringBuilder("");
-        // for task name string
-        StringBuilder a = new StringBuilder(arr[i + 1]);
-        for (int l = i + 2; l < by; l++) {
-            System.out.println("word:-" + arr[l] + "-");
-            StringBuilder str = new StringBuilder(" " + arr[l]);
-            a = a.append(str);
-        }
         // for task deadline string
-        StringBuilder stringDate = new StringBuilder(arr[by + 1]);
-        StringBuilder stringTime = new StringBuilder(arr[by + 2]);
-        String Iso8601Format = stringDate.toString() + "T" + stringTime.toString() + ":00";
+        String Iso8601Format = arr[by + 1] + "T" + arr[by + 2] + ":00";
         try {
-            Deadline d = new Deadline(a.toString(), false, Iso8601Format, new ArrayList<String>());
+            Deadline d = new Deadline(joinTokens(arr, 1, by), false, Iso8601Format, new ArrayList<String>());
             tasklist.addTask(d);
             msg.append("Got it. I've added this task:\n");
             msg.append(d + "\n");
@@ -135,7 +371,6 @@ public class Parser {
     }
 
     public String executeEvent(TaskList tasklist, String[] arr) {
-        int i = 0;
         int start = 0;
         int end = 0;
         for (int j = 0; j < arr.length; j++) {
@@ -168,25 +403,12 @@ public class Parser {
 
         StringBuilder msg = new StringBuilder("");
 
-        //for task name string
-        StringBuilder a = new StringBuilder(arr[i + 1]);
-        for (int l = i + 2; l < start; l++) {
-            StringBuilder str = new StringBuilder(" " + arr[l]);
-            a = a.append(str);
-        }
-
-        //for start string
-        StringBuilder startDate = new StringBuilder(arr[start + 1]);
-        StringBuilder startTime = new StringBuilder(arr[start + 2]);
-        String startIso8601Format = startDate.toString() + "T" + startTime.toString() + ":00";
-
-        //for end string
-        StringBuilder endDate = new StringBuilder(arr[end + 1]);
-        StringBuilder endTime = new StringBuilder(arr[end + 2]);
-        String endIso8601Format = endDate.toString() + "T" + endTime.toString() + ":00";
+        //for start and end strings
+        String startIso8601Format = arr[start + 1] + "T" + arr[start + 2] + ":00";
+        String endIso8601Format = arr[end + 1] + "T" + arr[end + 2] + ":00";
 
         try {
-            Event e = new Event(a.toString(), false, startIso8601Format, endIso8601Format, new ArrayList<String>());
+            Event e = new Event(joinTokens(arr, 1, start), false, startIso8601Format, endIso8601Format, new ArrayList<String>());
             tasklist.addTask(e);
             msg.append("Got it. I've added this task:\n");
             msg.append(e + "\n");
@@ -198,36 +420,77 @@ public class Parser {
     }
 
     public String executeFind(TaskList tasklist, String[] arr) {
+        StringBuilder s = new StringBuilder();
+        this.streamFind(tasklist, arr, ReplySink.of(s));
+        return s.toString();
+    }
+
+    public void streamFind(TaskList tasklist, String[] arr, ReplySink sink) {
+        Page page;
+        try {
+            page = parsePage(arr);
+        } catch (NumberFormatException e) {
+            sink.write("Invalid Command!");
+            return;
+        }
+        String[] args = page.args;
+        boolean isAny = args.length > 1 && args[1].equalsIgnoreCase("/any");
+        int firstKeyword = isAny ? 2 : 1;
         //if 'find' entered without keyword
-        StringBuilder msg = new StringBuilder("");
-        if (arr.length == 1) {
-            msg.append("You need to enter a keyword to find your tasks!");
-            return msg.toString();
-            //if 'find' entered with more than 1 keyword
-        } else if (arr.length > 2) {
-            msg.append("You can only enter one keyword!");
-            return msg.toString();
-        } else {
-            String keyword = arr[1];
-            msg.append("Here are the matching tasks in your list:\n");
-            int num = 1;
-            boolean isMatch = false;
-            for (int j = 0; j < tasklist.getSize(); j++) {
-                Task t = tasklist.getTask(j);
-                String[] taskName = t.name.split(" ");
-                for (int k = 0; k < taskName.length; k++) {
-                    if (taskName[k].equalsIgnoreCase(keyword)) {
-                        isMatch = true;
-                    }
-                }
-                if (isMatch) {
-                    msg.append(String.format("%d. %s\n", num, t));
-                    num++;
-                    isMatch = false;
-                }
+        if (args.length <= firstKeyword) {
+            sink.write("You need to enter a keyword to find your tasks!");
+            return;
+        }
+
+        // 'find a b' finds tasks containing every keyword, 'find /any a b' tasks containing any of them
+        List<String> keywords = Arrays.asList(args).subList(firstKeyword, args.length);
+        ArrayList<Task> found = tasklist.findTasks(keywords, !isAny);
+        streamTasks(sink, "Here are the matching tasks in your list:\n", found.size(), found::get, page, false);
+    }
+
+    public String executeDue(TaskList tasklist, String[] arr) {
+        if (arr.length < 2) {
+            return "'due' requires a date (Format: yyyy-mm-dd)!";
+        }
+        try {
+            LocalDate date = LocalDate.parse(arr[1]);
+            return listTasks("Here are the tasks due on " + date + ":\n",
+                    tasklist.getTasksDueBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay()));
+        } catch (DateTimeParseException e) {
+            return "Input dates not in the format 'yyyy-mm-dd'!";
+        }
+    }
+
+    public String executeBetween(TaskList tasklist, String[] arr) {
+        if (arr.length < 3) {
+            return "'between' requires a start and an end date (Format: yyyy-mm-dd yyyy-mm-dd)!";
+        }
+        try {
+            LocalDate from = LocalDate.parse(arr[1]);
+            LocalDate to = LocalDate.parse(arr[2]);
+            if (to.isBefore(from)) {
+                return "The end date can't be earlier than the start date!";
+            }
+            return listTasks("Here are the tasks from " + from + " to " + to + ":\n",
+                    tasklist.getTasksBetween(from.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+        } catch (DateTimeParseException e) {
+            return "Input dates not in the format 'yyyy-mm-dd'!";
+        }
+    }
+
+    public String executeUpcoming(TaskList tasklist, String[] arr) {
+        int count = DEFAULT_UPCOMING_COUNT;
+        if (arr.length > 1) {
+            try {
+                count = Integer.parseInt(arr[1]);
+            } catch (NumberFormatException e) {
+                return "Invalid Command!";
             }
-            return msg.toString();
         }
+        if (count <= 0) {
+            return "I can only show a positive number of tasks!";
+        }
+        return listTasks("Here are your upcoming tasks:\n", tasklist.getUpcomingTasks(LocalDateTime.now(), count));
     }
 
     public String executeTag(TaskList tasklist, String[] arr) {
@@ -239,9 +502,15 @@ public class Parser {
             s.append("'tag' requires the next two parameters 'task number' and 'tag name'!");
             return s.toString();
         }
+        if (isSelector(arr[1])) {
+            return executeBulk(tasklist, arr[1], indices -> {
+                tasklist.tagTasks(indices, arr[2]);
+                return String.format("OK, I've tagged %d tasks with #%s.", indices.length, arr[2]);
+            });
+        }
 
         try {
-            int index = Integer.parseInt(arr[i + 1]) - 1;
+            int index = toIndex(tasklist, arr[i + 1]);
             String tag = arr[i + 2];
             tasklist.tagTask(index, tag);
             s.append("OK, I've tagged this task as such:\n");
@@ -249,8 +518,7 @@ public class Parser {
         } catch (NumberFormatException e) {
             s.append("Invalid Command!");
         } catch (IndexOutOfBoundsException e) {
-            int taskNum = Integer.parseInt(arr[i + 1]);
-            s.append(String.format("There is no task at task number '%d'", taskNum));
+            s.append(describeMissingTask(arr[i + 1]));
         }
         return s.toString();
     }
@@ -264,20 +532,99 @@ public class Parser {
             s.append("'untag' requires the parameter 'task number'!");
             return s.toString();
         }
+        if (isSelector(arr[1])) {
+            return executeBulk(tasklist, arr[1], indices -> {
+                tasklist.untagTasks(indices);
+                return String.format("OK, I've untagged %d tasks.", indices.length);
+            });
+        }
 
         try {
-            int index = Integer.parseInt(arr[i + 1]) - 1;
+            int index = toIndex(tasklist, arr[i + 1]);
             tasklist.untagTask(index);
             s.append("OK, I've untagged this task as such:\n");
             s.append(tasklist.getTask(index));
         } catch (NumberFormatException e) {
             s.append("Invalid Command!");
         } catch (IndexOutOfBoundsException e) {
-            int taskNum = Integer.parseInt(arr[i + 1]);
-            s.append(String.format("There is no task at task number '%d'", taskNum));
+            s.append(describeMissingTask(arr[i + 1]));
         }
         return s.toString();
     }
+
+    public String executeUndo(TaskList tasklist, String[] arr) {
+        return tasklist.undo() ? "OK, I've undone your last change." : "There is nothing to undo!";
+    }
+
+    public String executeRedo(TaskList tasklist, String[] arr) {
+        return tasklist.redo() ? "OK, I've redone your last undone change." : "There is nothing to redo!";
+    }
+
+    /**
+     * @return whether the argument selects any number of tasks at once: a range ('1-5'), a list ('1,3,7'),
+     *         'done', 'undone', '#tag' or 'all'.
+     */
+    private static boolean isSelector(String arg) {
+        return arg.indexOf('-') > 0 || arg.indexOf('\0') >= 0 || arg.startsWith("#")
+                || arg.equalsIgnoreCase("done") || arg.equalsIgnoreCase("undone") || arg.equalsIgnoreCase("all");
+    }
+
+    /**
+     * Finds the tasks picked out by a selector (see isSelector). Ranges and lists may be combined, e.g. '1-3,7'.
+     * @return indices of the selected tasks in ascending order, without duplicates.
+     * @throws NumberFormatException if the selector is malformed.
+     * @throws IndexOutOfBoundsException if the selector refers to a task number that does not exist.
+     */
+    static int[] selectTasks(TaskList tasklist, String selector) {
+        if (selector.equalsIgnoreCase("all")) {
+            return tasklist.selectTasks(t -> true);
+        } else if (selector.equalsIgnoreCase("done")) {
+            return tasklist.selectTasks(t -> t.isDone);
+        } else if (selector.equalsIgnoreCase("undone")) {
+            return tasklist.selectTasks(t -> !t.isDone);
+        } else if (selector.startsWith("#")) {
+            String tag = selector.substring(1);
+            return tasklist.selectTasks(t -> t.tags.contains(tag));
+        }
+
+        BitSet selected = new BitSet(tasklist.getSize());
+        // ',' was replaced by '\0' when the input was tokenized
+        for (String part : selector.split("\0")) {
+            int dash = part.indexOf('-', 1);
+            int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1));
+            if (from > to) {
+                throw new NumberFormatException(part);
+            }
+            for (int taskNum : new int[] {from, to}) {
+                if (taskNum < 1 || taskNum > tasklist.getSize()) {
+                    throw new IndexOutOfBoundsException(String.format("There is no task at task number '%d'", taskNum));
+                }
+            }
+            selected.set(from - 1, to);
+        }
+        return selected.stream().toArray();
+    }
+
+    /**
+     * Runs a bulk command on the tasks picked out by the selector, replying with an error instead
+     * if the selector is invalid or selects nothing.
+     */
+    private String executeBulk(TaskList tasklist, String selector, Function<int[], String> action) {
+        int[] indices;
+        try {
+            indices = selectTasks(tasklist, selector);
+        } catch (NumberFormatException e) {
+            return "Invalid Command!";
+        } catch (IndexOutOfBoundsException e) {
+            return e.getMessage();
+        }
+        if (indices.length == 0) {
+            return String.format("There are no tasks matching '%s'!", selector.replace('\0', ','));
+        }
+        return action.apply(indices);
+    }
+
     /**
      * @param ui Ui used by the chatbot.
      * @param tasklist Tasklist containing all exisitng tasks.
@@ -285,60 +632,119 @@ public class Parser {
      * Existing accepted commands now include:
      *               'bye' - exits the conversation with the bot
      *               'list' - lists all existing tasks
+     *               'list #tag' - lists all tasks carrying the tag
+     *               'list /ids' - lists all existing tasks together with their ids
+     *               'list page N', 'list --limit N --offset M' - lists only some of the tasks
+     *               (the same options work for 'find')
+     *               'tags' - lists all tags with the number of tasks carrying each
      *               'mark X' - marks X'th task as done
      *               'unmark X' - marks X'th task as not done
      *               'delete X' - removes X'th task from the database
+     *               (wherever a task number X is expected, '@id' picks the task with that id instead)
+     *               'mark/unmark/delete/untag S', 'tag S tag' - the same for every task picked out by
+     *               a selector S: 'X-Y', 'X,Y,Z', 'done', 'undone', '#tag' or 'all'
      *               'todo task' - adds a to-do task to database
      *               'deadline task /by YYYY-MM-DD HH:mm' - adds a deadline task to the database
      *               'event task /from YYYY-MM-DD HH:mm /to YYYY-MM-DD HH:mm' - adds a event task to the database
+     *               'find word1 word2...' - lists tasks containing every keyword
+     *               'find /any word1 word2...' - lists tasks containing any of the keywords
+     *               'due YYYY-MM-DD' - lists deadline tasks due on that day
+     *               'between YYYY-MM-DD YYYY-MM-DD' - lists deadlines and events within those days
+     *               'upcoming N' - lists the next N deadlines or events
+     *               'undo' - reverses the last change, e.g. putting back a deleted task
+     *               'redo' - makes the last undone change again
      */
     public String evaluateAction(Ui ui, TaskList tasklist, String action) {
-        // '\\s+' refers to 'one or more whitespaces!'
-        String[] arr = action.trim().split("\\s+");
-        // gets rid of any ',' that will mess with csv database
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = arr[i].replace(",", "\0");
+        return this.evaluateAction(tasklist, action);
+    }
+
+    /**
+     * Runs a single command without any Ui, e.g. from a script. See evaluateAction(Ui, TaskList, String).
+     * Commands other than listings run atomically (see TaskList.atomically), so several threads may
+     * run commands against the same TaskList.
+     * @param tasklist Tasklist containing all existing tasks.
+     * @param action String representation of the input from the user.
+     * @return reply to the command.
+     */
+    public String evaluateAction(TaskList tasklist, String action) {
+        String[] arr = tokenize(action);
+        Command command = arr.length == 0 ? null : this.getCommand(arr[0]);
+        if (command == null) {
+            return "ERROR! Unknown Command!";
+        }
+        if (command instanceof StreamingCommand) {
+            return command.execute(tasklist, arr);
         }
+        return tasklist.atomically(() -> command.execute(tasklist, arr));
+    }
 
-        for (int i = 0; i < arr.length; i++) {
-            String act = arr[i].toLowerCase();
-            switch (act) {
-            case "list" -> {
-                    return executeList(tasklist, arr);
-                }
-            case "mark" -> {
-                    return executeMark(tasklist, arr);
-                }
-            case "unmark" -> {
-                    return executeUnmark(tasklist, arr);
-                }
-            case "delete" -> {
-                    return executeDelete(tasklist, arr);
-                }
-            case "todo" -> {
-                    return executeTodo(tasklist, arr);
-                }
-            case "deadline" -> {
-                    return executeDeadline(tasklist, arr);
-                }
-            case "event" -> {
-                    return executeEvent(tasklist, arr);
-                }
-            case "find" -> {
-                    return executeFind(tasklist, arr);
-                }
-            case "tag" -> {
-                    return executeTag(tasklist, arr);
-                }
-            case "untag" -> {
-                    return executeUntag(tasklist, arr);
-                }
-            default -> {
-                    return "ERROR! Unknown Command!";
-                }
+    /**
+     * Runs a single command like evaluateAction(TaskList, String), but writes the reply into the sink as it is
+     * produced, so that the start of a long listing can be shown before the rest of it has been produced.
+     * @param tasklist Tasklist containing all existing tasks.
+     * @param action String representation of the input from the user.
+     * @param sink sink the reply is written into.
+     */
+    public void evaluateAction(TaskList tasklist, String action, ReplySink sink) {
+        String[] arr = tokenize(action);
+        Command command = arr.length == 0 ? null : this.getCommand(arr[0]);
+        if (command == null) {
+            sink.write("ERROR! Unknown Command!");
+            return;
+        }
+        if (command instanceof StreamingCommand) {
+            // listings work from a snapshot, so they need not keep other commands waiting while streamed
+            command.stream(tasklist, arr, sink);
+            return;
+        }
+        tasklist.atomically(() -> {
+            command.stream(tasklist, arr, sink);
+            return null;
+        });
+    }
+
+    /**
+     * Splits the input on whitespace in a single pass, replacing any ',' (which would mess with the
+     * csv database) by '\0' along the way.
+     * @param action String representation of the input from the user.
+     * @return tokens of the input, empty if it is blank.
+     */
+    static String[] tokenize(String action) {
+        String[] tokens = new String[INITIAL_TOKENS];
+        int count = 0;
+        int length = action.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(action.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
             }
+            int start = i;
+            boolean hasComma = false;
+            while (i < length && !Character.isWhitespace(action.charAt(i))) {
+                hasComma |= action.charAt(i) == ',';
+                i++;
+            }
+            String token = action.substring(start, i);
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            tokens[count++] = hasComma ? token.replace(',', '\0') : token;
         }
-        return "";
+        return count == tokens.length ? tokens : Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * @return tokens arr[from] to arr[to - 1] separated by single spaces.
+     */
+    static String joinTokens(String[] arr, int from, int to) {
+        StringBuilder s = new StringBuilder(arr[from]);
+        for (int j = from + 1; j < to; j++) {
+            s.append(' ').append(arr[j]);
+        }
+        return s.toString();
     }
 }
 
@@ -0,0 +1,41 @@
+package blob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Receives a reply part by part as a command produces it, so that long replies (e.g. of 'list')
+ * can be shown while they are being produced and are never held in memory as a whole.
+ * The parts of a reply are to be joined without anything in between.
+ */
+@FunctionalInterface
+public interface ReplySink {
+    /**
+     * @param part next part of the reply. It may be reused by the caller once write returns,
+     *             so it must be copied if it is to be kept.
+     */
+    void write(CharSequence part);
+
+    /**
+     * @param s StringBuilder the reply is appended to.
+     * @return sink collecting the reply into s.
+     */
+    static ReplySink of(StringBuilder s) {
+        return s::append;
+    }
+
+    /**
+     * @param writer Writer the reply is written to.
+     * @return sink writing the reply to writer, throwing UncheckedIOException if it cannot be written.
+     */
+    static ReplySink of(Writer writer) {
+        return part -> {
+            try {
+                writer.append(part);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a complete snapshot of the database in a crash-safe way.
+ * Rows are encoded through a reusable direct buffer into a temporary file next to the database,
+ * which is forced onto the disk and then atomically moved over the database.
+ * A crash at any point therefore leaves either the old or the new database, never a partial one.
+ */
+public class SnapshotWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder chars = new StringBuilder(CHUNK_SIZE + 256);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Replaces the file at target with the given header followed by one row per task.
+     * @param target path of the database.
+     * @param headers first line of the database, including its newline.
+     * @param tasks tasks to be written.
+     * @return CRC32 checksum of the bytes written.
+     * @throws IOException if the snapshot cannot be written or moved into place.
+     */
+    public synchronized long write(Path target, String headers, List<? extends Task> tasks) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.crc.reset();
+        this.buffer.clear();
+        this.chars.setLength(0);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.chars.append(headers);
+            for (int i = 0; i < tasks.size(); i++) {
+                CsvStorage.appendCsvRow(this.chars, tasks.get(i));
+                this.chars.append('\n');
+                if (this.chars.length() >= CHUNK_SIZE) {
+                    this.encodeChars(channel);
+                }
+            }
+            this.encodeChars(channel);
+            this.drain(channel);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return this.crc.getValue();
+    }
+
+    /**
+     * Encodes the collected rows into the buffer, draining it into the channel whenever it fills up.
+     * Rows are only ever encoded whole, so no surrogate pair is split between two chunks.
+     */
+    private void encodeChars(FileChannel channel) throws IOException {
+        CharBuffer in = CharBuffer.wrap(this.chars);
+        this.encoder.reset();
+        CoderResult result;
+        do {
+            result = this.encoder.encode(in, this.buffer, true);
+            if (result.isOverflow()) {
+                this.drain(channel);
+            }
+        } while (result.isOverflow());
+        while (this.encoder.flush(this.buffer).isOverflow()) {
+            this.drain(channel);
+        }
+        this.chars.setLength(0);
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        this.buffer.flip();
+        this.crc.update(this.buffer.duplicate());
+        while (this.buffer.hasRemaining()) {
+            channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
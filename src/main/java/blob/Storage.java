@@ -1,120 +1,108 @@
 package blob;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * Responsible for interfacing with the database (.csv file).
- * Constructor is to be called with a string representation of the desired file path to store the database as its argument.
+ * Responsible for interfacing with the database that tasks are kept in.
+ * TaskList only depends on this interface, so the database can be a .csv file (CsvStorage)
+ * or a memory-mapped binary file (MappedStorage).
  */
-public class Storage {
-    private File file;
-    private String filePath;
-    private final String NA_DATA = "NA";
+public interface Storage {
+    /**
+     * Retrieves all tasks from the database.
+     * @return ArrayList containing all existing tasks from the database.
+     * @throws FileNotFoundException if the database cannot be found.
+     */
+    ArrayList<Task> getFileContents() throws FileNotFoundException;
 
-    public Storage(String filePath) {
-        //ensures file is always created (if it didn't exist initially)
-        try {
-            this.filePath = filePath;
-            this.file = new File(filePath);
-            if (this.file.createNewFile()) {
-                FileWriter fw = new FileWriter(filePath);
-                fw.write("type,is_checked,task_name,time1,time2,tags\n");
-                fw.close();
-            } else {
-                Scanner s = new Scanner(this.file);
-                String headers = s.nextLine();
-                assert headers.equals("type,is_checked,task_name,time1,time2,tags\n") : "File headers are wrong!";
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Database file was unable to be generated!");
-        }
-    }
+    /**
+     * Hands every task in the database to the visitor in order, without collecting them into a list first.
+     * @param visitor callback receiving each task.
+     * @throws FileNotFoundException if the database cannot be found.
+     */
+    void forEachTask(Consumer<? super Task> visitor) throws FileNotFoundException;
 
     /**
-     * Retrieves tasks from the database, skipping the first line in the database (skips data headers).
-     * @return ArrayList containing all existing tasks from the database.
-     * @throws FileNotFoundException if file cannot be found.
+     * Replaces all data in the database with tasks from its argument.
+     * @param database list of tasks.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    void updateFileContents(List<? extends Task> database) throws IOException;
+
+    /**
+     * Persists a single change.
+     * @param database list of tasks, with the change already applied.
+     * @param mutation the change that was applied.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    void commit(List<? extends Task> database, Mutation mutation) throws IOException;
+
+    /**
+     * Persists several changes at once, e.g. those of a bulk command, as a single write where possible.
+     * @param database list of tasks, with the changes already applied.
+     * @param mutations the changes that were applied, in order.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    void commitAll(List<? extends Task> database, List<Mutation> mutations) throws IOException;
+
+    /**
+     * Writes every change handed to storage so far and forces it onto the disk.
+     * @throws IOException if there exists an error related to writing to the database.
      */
-    public ArrayList<Task> getFileContents() throws FileNotFoundException {
-        ArrayList<Task> tasks = new ArrayList<>();
-        Scanner s = new Scanner(this.file);
-        s.nextLine(); //skips headers
+    void sync() throws IOException;
 
-        while (s.hasNext()) {
-            String[] array = s.nextLine().split(",");
-            String taskType = array[0];
-            int isChecked = Integer.parseInt(array[1]);
-            String taskName = array[2];
+    /**
+     * @return one more than the highest id of any task ever written to the database, including tasks deleted
+     *         since, so that their ids are never handed out again; or 0 if the database does not record it.
+     */
+    default int getNextId() {
+        return 0;
+    }
 
-            switch (taskType) {
-            case "T" -> {
-                ArrayList<String> tags = new ArrayList<>();
-                for (int i = 5; i < array.length; i++) {
-                    tags.add(array[i]);
-                }
+    /**
+     * Keeps other processes from changing the database until the matching call to unlock(). Calls may be nested.
+     * Does nothing unless the database is shared between processes (see CsvStorage.enableSharedMode).
+     * @throws IOException if the database cannot be locked.
+     */
+    default void lock() throws IOException {
+    }
 
-                Todo t = new Todo(taskName, isChecked == 1, tags);
-                tasks.add(t);
-            }
-            case "D" -> {
-                ArrayList<String> tags = new ArrayList<>();
-                for (int i = 5; i < array.length; i++) {
-                    tags.add(array[i]);
-                }
-                Deadline d = new Deadline(taskName, isChecked == 1, array[3], tags);
-                tasks.add(d);
-            }
-            case "E" -> {
-                ArrayList<String> tags = new ArrayList<>();
-                for (int i = 5; i < array.length; i++) {
-                    tags.add(array[i]);
-                }
-                Event e = new Event(taskName, isChecked == 1, array[3], array[4], tags);
-                tasks.add(e);
-            }
-            }
-        }
-        return tasks;
+    /**
+     * Lets other processes change the database again, once every call to lock() has been matched.
+     * @throws IOException if the database cannot be unlocked.
+     */
+    default void unlock() throws IOException {
     }
 
     /**
-     * Rewrites the database file and replaces all data with tasks from its argument.
-     * @param database ArrayList containing tasks.
-     * @throws IOException if there exists an error related to writing to the database.
+     * Reports the changes other processes have made to a shared database since storage last read or wrote it.
+     * To be called while holding the lock, before making a change of one's own.
+     * @return the changes in the order they were made (empty if there are none), or null if they cannot be
+     *         told apart and every task has to be reloaded through forEachTask.
+     * @throws IOException if the database cannot be read.
      */
-    public void updateFileContents(ArrayList<Task> database) throws IOException {
-        FileWriter fw = new FileWriter(this.filePath);
-        StringBuilder allData = new StringBuilder("type,is_checked,task_name,time1,time2,tags\n");
-        for (int i = 0; i < database.size(); i++) {
-            Task t = database.get(i);
-            String isChecked = String.valueOf(t.isDone ? 1 : 0);
+    default List<Mutation> pollChanges() throws IOException {
+        return List.of();
+    }
 
-            switch (t.type) {
-            case "T" -> {
-                StringBuilder data = new StringBuilder(String.format("%s,%s,%s,%s,%s,%s\n",
-                        t.type, isChecked, t.name, NA_DATA, NA_DATA, t.displayTags()));
-                allData.append(data);
-            }
-            case "D" -> {
-                Deadline d = (Deadline) t;
-                StringBuilder data = new StringBuilder(String.format("%s,%s,%s,%s,%s,%s\n",
-                        t.type, isChecked, t.name, d.getDeadline(), NA_DATA, t.displayTags()));
-                allData.append(data);
-            }
-            case "E" -> {
-                Event e = (Event) t;
-                StringBuilder data = new StringBuilder(String.format("%s,%s,%s,%s,%s,%s\n",
-                        t.type, isChecked, t.name, e.getStart(), e.getEnd(), t.displayTags()));
-                allData.append(data);
-            }
-            }
-        }
-        fw.write(allData.toString());
-        fw.close();
+    /**
+     * Switches to group-commit mode (see Durability.GROUP_COMMIT), where changes are written in batches by
+     * a background writer. Does nothing for storage that never waits on the disk for a change anyway
+     * (e.g. MappedStorage, whose changes are written out by the operating system).
+     * @param batchSize number of changes that triggers a write.
+     * @param delayMillis longest time in milliseconds that a change waits before being written.
+     * @throws IOException if there exists an error related to opening the database log.
+     */
+    default void enableGroupCommit(int batchSize, long delayMillis) throws IOException {
     }
+
+    /**
+     * Syncs all changes and releases the database. Storage must not be used afterwards.
+     * @throws IOException if there exists an error related to writing to the database.
+     */
+    void close() throws IOException;
 }
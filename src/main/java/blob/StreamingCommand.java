@@ -0,0 +1,23 @@
+package blob;
+
+/**
+ * Command whose reply is written part by part into a ReplySink, for commands with long replies such as 'list'.
+ * Its reply can still be asked for as a single String through execute.
+ */
+@FunctionalInterface
+public interface StreamingCommand extends Command {
+    /**
+     * @param tasklist Tasklist containing all existing tasks.
+     * @param arr tokens of the user's input, with any ',' replaced by '\0'.
+     * @param sink sink the reply is written into.
+     */
+    @Override
+    void stream(TaskList tasklist, String[] arr, ReplySink sink);
+
+    @Override
+    default String execute(TaskList tasklist, String[] arr) {
+        StringBuilder s = new StringBuilder();
+        this.stream(tasklist, arr, ReplySink.of(s));
+        return s.toString();
+    }
+}
@@ -1,12 +1,26 @@
 package blob;
 
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 /**
  * Represents a Task that contains the following fields, a String representation of its type,
  * a name, and a boolean value of whether it is done or not.
+ * Every task in a TaskList also carries a unique id that stays the same for as long as the task exists.
  */
-public class Task {
+public class Task implements Cloneable {
+    private static final String[] MONTH_NAMES = new String[12];
+
+    static {
+        DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMM");
+        for (Month month : Month.values()) {
+            MONTH_NAMES[month.ordinal()] = monthFormat.format(month);
+        }
+    }
+
+    protected int id;
     protected String type;
     protected String name;
     protected boolean isDone;
@@ -18,6 +32,30 @@ public class Task {
         this.tags = tags;
     }
 
+    /**
+     * @return id of the task, or 0 if it has not been added to a TaskList yet.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return a copy of the task with a tag list of its own, which can be changed without affecting this task.
+     */
+    public Task copy() {
+        try {
+            Task t = (Task) super.clone();
+            t.tags = new ArrayList<>(this.tags);
+            return t;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     /**
      * Sets isDone field to true
      */
@@ -41,22 +79,53 @@ public class Task {
     }
 
     /**
-     * @return String representation of the task of form "['completion status'] 'task name' - #tag1 #tag2..."
+     * @return String representation of the task, as written by appendTo.
      */
     @Override
     public String toString() {
+        StringBuilder s = new StringBuilder(32 + this.name.length());
+        this.appendTo(s);
+        return s.toString();
+    }
+
+    /**
+     * Appends the String representation of the task, of form "['completion status'] 'task name' - #tag1 #tag2...",
+     * without building any intermediate strings.
+     * @param s StringBuilder to append to.
+     */
+    public void appendTo(StringBuilder s) {
+        s.append('[').append(this.check()).append("] ").append(this.name);
+        this.appendTags(s);
+    }
+
+    /**
+     * Appends " - #tag1 #tag2 " if the task has any tags.
+     */
+    protected void appendTags(StringBuilder s) {
         if (this.tags.isEmpty()) {
-            return "[" + this.check() + "] " + this.name;
-        } else {
-            StringBuilder tags = new StringBuilder("");
-            for (int i = 0; i < this.tags.size(); i++) {
-                String tag = this.tags.get(i);
-                tags.append("#" + tag + " ");
-            }
-            return "[" + this.check() + "] " + this.name + " - " + tags.toString();
+            return;
+        }
+        s.append(" - ");
+        for (int i = 0; i < this.tags.size(); i++) {
+            s.append('#').append(this.tags.get(i)).append(' ');
         }
     }
 
+    /**
+     * Appends a date and time in the form DateTimeFormatter pattern "MMM d HH:mm" would produce.
+     * Month names are taken from a formatter once, so that rendering a task does not allocate.
+     */
+    protected static void appendDateTime(StringBuilder s, LocalDateTime dateTime) {
+        s.append(MONTH_NAMES[dateTime.getMonthValue() - 1]).append(' ').append(dateTime.getDayOfMonth()).append(' ');
+        appendTwoDigits(s, dateTime.getHour());
+        s.append(':');
+        appendTwoDigits(s, dateTime.getMinute());
+    }
+
+    private static void appendTwoDigits(StringBuilder s, int value) {
+        s.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
     public String displayTags() {
         if (this.tags.isEmpty()) {
             return "";
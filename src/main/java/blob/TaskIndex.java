@@ -0,0 +1,89 @@
+package blob;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Maps keys (e.g. words of task names, or tags) to the ids of the tasks they belong to.
+ * Tasks are filed by id rather than by object, so that the index works the same whichever TaskTable
+ * holds the tasks. Ids under each key are kept in the order they were added.
+ * The index also hands out a single shared String instance per key (see intern), so that
+ * many tasks filed under the same key do not each hold their own copy of it.
+ */
+public class TaskIndex {
+    private HashMap<String, Postings> entries = new HashMap<>();
+
+    /**
+     * Ids of the tasks filed under one key, together with the canonical instance of that key.
+     */
+    private static class Postings {
+        private final String key;
+        private final LinkedHashSet<Integer> ids = new LinkedHashSet<>();
+
+        Postings(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Files the task under the key.
+     * @param key key to file the task under.
+     * @param id id of the task to be filed.
+     */
+    public void add(String key, Integer id) {
+        this.entries.computeIfAbsent(key, Postings::new).ids.add(id);
+    }
+
+    /**
+     * Removes the task from under the key, forgetting the key once no task is left under it.
+     * @param key key the task was filed under.
+     * @param id id of the task to be removed.
+     */
+    public void remove(String key, Integer id) {
+        Postings tasks = this.entries.get(key);
+        if (tasks == null) {
+            return;
+        }
+        tasks.ids.remove(id);
+        if (tasks.ids.isEmpty()) {
+            this.entries.remove(key);
+        }
+    }
+
+    /**
+     * @param key key to look up.
+     * @return read-only set of ids of the tasks filed under the key, empty if there are none.
+     */
+    public Set<Integer> get(String key) {
+        Postings tasks = this.entries.get(key);
+        return tasks == null ? Collections.emptySet() : Collections.unmodifiableSet(tasks.ids);
+    }
+
+    /**
+     * @param key key to look up.
+     * @return the String instance already used for an equal key in this index, or the key itself if it is new.
+     */
+    public String intern(String key) {
+        Postings tasks = this.entries.get(key);
+        return tasks == null ? key : tasks.key;
+    }
+
+    /**
+     * @return every key in alphabetical order, with the number of tasks filed under it.
+     */
+    public TreeMap<String, Integer> getCounts() {
+        TreeMap<String, Integer> counts = new TreeMap<>();
+        this.entries.forEach((key, tasks) -> counts.put(key, tasks.ids.size()));
+        return counts;
+    }
+
+    /**
+     * Removes every key and task from the index.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+}
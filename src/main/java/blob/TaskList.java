@@ -2,17 +2,125 @@ package blob;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Handles manipulation of tasks by working with 'storage'.
+ * Tasks are loaded from storage once and kept in memory; all reads are served from memory
+ * while every mutation is written through to storage.
+ * An index from every (lower-cased) word of a task's name to its tasks is kept up to date for 'find',
+ * as well as an index from every tag to its tasks. Tags are interned through the tag index.
+ * Deadlines and events are also ordered by time in a TimeIndex for date queries.
+ * Every task is given an id when added that is higher than that of any task ever in the list (storage
+ * remembers the highest one handed out, see Storage.getNextId), so ids are never reused and the list is
+ * always sorted by id (a database edited out of id order by hand is sorted when loaded). The indexes
+ * refer to tasks by id, and the tasks themselves are held by a TaskTable: Task objects by default,
+ * or primitive columns (ColumnarTaskTable) for lists of millions of tasks.
+ * A TaskList may be shared between threads: changes take a write lock and queries a read lock, so any
+ * number of queries run side by side. Listings walk a snapshot, which needs no lock at all once taken;
+ * a page of a listing only copies the tasks on the page (see TaskTable.snapshot).
+ * Tasks are never changed once handed out (see ArrayTaskTable), so they can be read without a lock too.
+ * If other processes share the database (see CsvStorage.enableSharedMode), their changes are caught up with
+ * before every change, holding the database lock until the change has been written.
+ * The last HISTORY_SIZE changes can be undone and redone (see UndoHistory). Each change is one call of a
+ * method such as deleteTasks, however many tasks it affects.
  * Constructor requires a Storage parameter.
  */
 public class TaskList {
+    private static final int HISTORY_SIZE = 100;
+
     private Storage storage;
+    private TaskTable tasks;
+    private TaskIndex keywordIndex = new TaskIndex();
+    private TaskIndex tagIndex = new TaskIndex();
+    private TimeIndex timeIndex = new TimeIndex(id -> this.tasks.getById(id));
+    private int nextId = 1;
+    private final UndoHistory history = new UndoHistory(HISTORY_SIZE);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile List<Task> snapshot;
 
     public TaskList(Storage storage) {
+        this(storage, new ArrayTaskTable());
+    }
+
+    /**
+     * @param storage storage the tasks are loaded from and written through to.
+     * @param tasks empty table to hold the tasks in.
+     */
+    public TaskList(Storage storage, TaskTable tasks) {
         this.storage = storage;
+        this.tasks = tasks;
+        this.reload();
+    }
+
+    /**
+     * Discards the in-memory tasks and reloads them from storage.
+     * Should be called whenever the database file has been changed outside of this TaskList.
+     */
+    public void reload() {
+        this.write(this::load);
+    }
+
+    private void load() {
+        this.tasks.clear();
+        this.keywordIndex.clear();
+        this.tagIndex.clear();
+        this.timeIndex.clear();
+        // the tasks the history refers to by index may have moved
+        this.history.clear();
+        try {
+            this.storage.forEachTask(this.tasks::add);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("File was not found!");
+        }
+        // ids of deleted tasks are never handed out again, even those higher than any left in the list
+        this.nextId = Math.max(1, this.storage.getNextId());
+        for (int i = 0; i < this.tasks.size(); i++) {
+            this.nextId = Math.max(this.nextId, this.tasks.getId(i) + 1);
+        }
+        boolean isMissingIds = false;
+        boolean isSorted = true;
+        for (int i = 0; i < this.tasks.size(); i++) {
+            if (this.tasks.getId(i) == 0) {
+                this.tasks.setId(i, this.nextId++);
+                isMissingIds = true;
+            }
+            isSorted = isSorted && (i == 0 || this.tasks.getId(i - 1) <= this.tasks.getId(i));
+        }
+        // the tables look tasks up by binary search on their ids
+        if (!isSorted) {
+            this.sortById();
+        }
+        for (int i = 0; i < this.tasks.size(); i++) {
+            this.indexTask(this.tasks.get(i));
+        }
+        // databases written before tasks had ids (or out of id order) are rewritten once, so that the ids stick
+        if (isMissingIds || !isSorted) {
+            try {
+                this.storage.updateFileContents(this.tasks.asList());
+            } catch (IOException e) {
+                throw new RuntimeException("Error updating database!");
+            }
+        }
+    }
+
+    private void sortById() {
+        ArrayList<Task> sorted = new ArrayList<>(this.tasks.asList());
+        sorted.sort(Comparator.comparingInt(Task::getId));
+        this.tasks.clear();
+        sorted.forEach(this.tasks::add);
     }
 
     /**
@@ -21,41 +129,210 @@ public class TaskList {
      * @return Task.
      */
     public Task getTask(int index) {
-        try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            return tempDatabase.get(index);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
+        return this.read(() -> this.tasks.get(index));
+    }
+
+    /**
+     * @param id id of the task.
+     * @return Task with that id, or null if there is none.
+     */
+    public Task getTaskById(int id) {
+        return this.read(() -> this.tasks.getById(id));
+    }
+
+    /**
+     * Catches up with the changes other processes have made to a shared database, so that they show
+     * without waiting for the next change made here (see DatabaseWatcher).
+     */
+    public void refresh() {
+        // atomically catches up before running anything
+        this.write(() -> { });
+    }
+
+    /**
+     * Finds the position of a task in the list, which is what storage and display numbering work with.
+     * @param id id of the task.
+     * @return index of the task with that id.
+     * @throws IndexOutOfBoundsException if there is no task with that id.
+     */
+    public int indexOfId(int id) {
+        int index = this.read(() -> this.tasks.indexOfId(id));
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("There is no task with id " + id);
         }
+        return index;
     }
 
     /**
      * @return integer number of existing tasks.
      */
     public int getSize() {
+        return this.read(this.tasks::size);
+    }
+
+    /**
+     * Takes a consistent copy of the list, which stays as it is while the list changes, e.g. for
+     * listing the tasks while other threads add to them. The copy is shared until the list next changes,
+     * so taking it again costs nothing.
+     * @return read-only list of the tasks, in list order.
+     */
+    public List<Task> snapshot() {
+        List<Task> current = this.snapshot;
+        if (current != null) {
+            return current;
+        }
+        return this.read(() -> this.takeSnapshot(0, this.tasks.size()));
+    }
+
+    /**
+     * Takes a consistent copy of up to limit tasks from offset on, e.g. for showing a page of the list
+     * while other threads change it. Only those tasks are copied, unless a copy of the whole list is at hand.
+     * @param offset index of the first task wanted.
+     * @param limit maximum number of tasks wanted.
+     * @return the tasks, along with the size of the list when they were taken.
+     */
+    public TaskSlice snapshot(int offset, int limit) {
+        List<Task> current = this.snapshot;
+        if (current != null) {
+            return TaskSlice.of(current, offset, limit);
+        }
+        return this.read(() -> {
+            int size = this.tasks.size();
+            int from = TaskSlice.start(size, offset);
+            int to = TaskSlice.end(size, from, limit);
+            return new TaskSlice(from, size, this.takeSnapshot(from, to));
+        });
+    }
+
+    private List<Task> takeSnapshot(int from, int to) {
+        List<Task> taken = this.tasks.snapshot(from, to);
+        if (from == 0 && to == this.tasks.size()) {
+            // published under the lock, so that a snapshot taken before a change never outlives it
+            this.snapshot = taken;
+        }
+        return taken;
+    }
+
+    /**
+     * Runs an action with every other thread kept out of the list, e.g. so that the index a command
+     * looked up still refers to the same task when it changes it. Calls may be nested.
+     * @param action action reading and changing the list.
+     * @return result of the action.
+     */
+    public <T> T atomically(Supplier<T> action) {
+        this.lock.writeLock().lock();
         try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            return tempDatabase.size();
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
+            if (this.lock.getWriteHoldCount() > 1) {
+                return action.get();
+            }
+            this.lockStorage();
+            try {
+                this.catchUp();
+                return action.get();
+            } finally {
+                this.unlockStorage();
+            }
+        } finally {
+            this.snapshot = null;
+            this.lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Finds tasks whose names contain the keywords as whole words, ignoring case.
+     * Only the tasks filed under the keywords are looked at, never the whole list.
+     * @param keywords keywords to look for.
+     * @param isAll true if a task has to contain every keyword, false if any one of them is enough.
+     * @return matching tasks. With isAll they are in list order; otherwise tasks matching
+     *         the first keyword come first, each group in list order.
+     */
+    public ArrayList<Task> findTasks(List<String> keywords, boolean isAll) {
+        return this.read(() -> this.findIndexedTasks(keywords, isAll));
+    }
+
+    private ArrayList<Task> findIndexedTasks(List<String> keywords, boolean isAll) {
+        ArrayList<Set<Integer>> matches = new ArrayList<>();
+        for (String keyword : keywords) {
+            matches.add(this.keywordIndex.get(keyword.toLowerCase(Locale.ROOT)));
+        }
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!isAll) {
+            HashSet<Integer> union = new HashSet<>();
+            for (Set<Integer> match : matches) {
+                union.addAll(match);
+            }
+            return this.getTasksByIds(union);
+        }
+
+        Set<Integer> smallest = matches.get(0);
+        for (Set<Integer> match : matches) {
+            if (match.size() < smallest.size()) {
+                smallest = match;
+            }
+        }
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (Integer id : smallest) {
+            boolean isInAll = true;
+            for (Set<Integer> match : matches) {
+                isInAll = isInAll && match.contains(id);
+            }
+            if (isInAll) {
+                ids.add(id);
+            }
+        }
+        return this.getTasksByIds(ids);
+    }
+
+    /**
+     * @param tag tag to look for.
+     * @return tasks carrying the tag, in list order.
+     */
+    public ArrayList<Task> getTasksWithTag(String tag) {
+        return this.read(() -> this.getTasksByIds(this.tagIndex.get(tag)));
+    }
+
+    /**
+     * @return every tag in alphabetical order, with the number of tasks carrying it.
+     */
+    public TreeMap<String, Integer> getTagCounts() {
+        return this.read(this.tagIndex::getCounts);
+    }
+
+    /**
+     * @param from earliest deadline (inclusive).
+     * @param to latest deadline (exclusive).
+     * @return deadline tasks due within [from, to), earliest first.
+     */
+    public ArrayList<Task> getTasksDueBetween(LocalDateTime from, LocalDateTime to) {
+        return this.read(() -> this.timeIndex.getDeadlinesBetween(from, to));
+    }
+
+    /**
+     * @param from start of the period (inclusive).
+     * @param to end of the period (exclusive).
+     * @return deadlines due within the period and events overlapping it, in order of time.
+     */
+    public ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return this.read(() -> this.timeIndex.getTasksBetween(from, to));
+    }
+
+    /**
+     * @param now point in time from which to look ahead.
+     * @param count maximum number of tasks to return.
+     * @return the next count deadlines or events starting at or after now, earliest first.
+     */
+    public ArrayList<Task> getUpcomingTasks(LocalDateTime now, int count) {
+        return this.read(() -> this.timeIndex.getUpcoming(now, count));
+    }
+
     /**
      * Marks the task at the index as completed.
      * @param index index of task.
      */
     public void markTask(int index) {
-        try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            Task t = tempDatabase.get(index);
-            t.complete();
-            this.storage.updateFileContents(tempDatabase);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
-        } catch (IOException e) {
-            throw new RuntimeException("Error updating database!");
-        }
+        this.write(() -> this.change(List.of(Mutation.mark(index))));
     }
 
     /**
@@ -63,16 +340,7 @@ public class TaskList {
      * @param index index of task.
      */
     public void unmarkTask(int index) {
-        try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            Task t = tempDatabase.get(index);
-            t.undo();
-            this.storage.updateFileContents(tempDatabase);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
-        } catch (IOException e) {
-            throw new RuntimeException("Error updating database!");
-        }
+        this.write(() -> this.change(List.of(Mutation.unmark(index))));
     }
 
     /**
@@ -80,15 +348,10 @@ public class TaskList {
      * @param task new Task object.
      */
     public void addTask(Task task) {
-        try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            tempDatabase.add(task);
-            this.storage.updateFileContents(tempDatabase);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
-        } catch (IOException e) {
-            throw new RuntimeException("Error updating database!");
-        }
+        this.write(() -> {
+            task.id = this.nextId++;
+            this.change(List.of(Mutation.add(task)));
+        });
     }
 
     /**
@@ -96,17 +359,11 @@ public class TaskList {
      * @param index index of task.
      */
     public Task deleteTask(int index) {
-        try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            Task t = tempDatabase.get(index);
-            tempDatabase.remove(t);
-            this.storage.updateFileContents(tempDatabase);
+        return this.atomically(() -> {
+            Task t = this.tasks.get(index);
+            this.change(List.of(Mutation.delete(index)));
             return t;
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
-        } catch (IOException e) {
-            throw new RuntimeException("Error updating database!");
-        }
+        });
     }
 
     /**
@@ -115,30 +372,397 @@ public class TaskList {
      * @param tag tag associated with the task
      */
     public void tagTask(int index, String tag) {
+        this.write(() -> this.change(List.of(Mutation.tag(index, this.tagIndex.intern(tag)))));
+    }
+
+    /**
+     * Clears ALL tags from the existing task
+     * @param index index of task
+     */
+    public void untagTask(int index) {
+        this.write(() -> this.change(List.of(Mutation.untag(index))));
+    }
+
+    /**
+     * @param condition condition the selected tasks must satisfy.
+     * @return indices of every task satisfying the condition, in ascending order.
+     */
+    public int[] selectTasks(Predicate<Task> condition) {
+        return this.read(() -> this.selectIndices(condition));
+    }
+
+    private int[] selectIndices(Predicate<Task> condition) {
+        int[] indices = new int[this.tasks.size()];
+        int count = 0;
+        for (int i = 0; i < this.tasks.size(); i++) {
+            if (condition.test(this.tasks.get(i))) {
+                indices[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Marks every task at the given indices as completed, persisting the changes at once.
+     * @param indices indices of tasks, in ascending order.
+     */
+    public void markTasks(int[] indices) {
+        this.write(() -> {
+            ArrayList<Mutation> mutations = new ArrayList<>();
+            for (int index : indices) {
+                if (!this.tasks.get(index).isDone) {
+                    mutations.add(Mutation.mark(index));
+                }
+            }
+            this.change(mutations);
+        });
+    }
+
+    /**
+     * Marks every task at the given indices as uncompleted, persisting the changes at once.
+     * @param indices indices of tasks, in ascending order.
+     */
+    public void unmarkTasks(int[] indices) {
+        this.write(() -> {
+            ArrayList<Mutation> mutations = new ArrayList<>();
+            for (int index : indices) {
+                if (this.tasks.get(index).isDone) {
+                    mutations.add(Mutation.unmark(index));
+                }
+            }
+            this.change(mutations);
+        });
+    }
+
+    /**
+     * Removes every task at the given indices in a single pass over the list, persisting the changes at once.
+     * @param indices indices of tasks, in ascending order without duplicates.
+     * @return the removed tasks.
+     */
+    public ArrayList<Task> deleteTasks(int[] indices) {
+        return this.atomically(() -> {
+            ArrayList<Task> removed = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                removed.add(this.tasks.get(index));
+            }
+            this.tasks.removeAll(indices);
+
+            // deletions are recorded from the back so that replaying them one by one removes the same tasks
+            ArrayList<Mutation> mutations = new ArrayList<>(indices.length);
+            for (int i = indices.length - 1; i >= 0; i--) {
+                mutations.add(Mutation.delete(indices[i]));
+            }
+            // putting the tasks back from the front puts each of them back where it was
+            Mutation[] undo = new Mutation[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                undo[i] = Mutation.insert(indices[i], removed.get(i));
+                this.unindexTask(removed.get(i));
+            }
+            this.saveAll(mutations);
+            this.record(undo);
+            return removed;
+        });
+    }
+
+    /**
+     * Adds a tag to every task at the given indices, persisting the changes at once.
+     * @param indices indices of tasks, in ascending order.
+     * @param tag tag associated with the tasks.
+     */
+    public void tagTasks(int[] indices, String tag) {
+        this.write(() -> {
+            String interned = this.tagIndex.intern(tag);
+            ArrayList<Mutation> mutations = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                mutations.add(Mutation.tag(index, interned));
+            }
+            this.change(mutations);
+        });
+    }
+
+    /**
+     * Clears ALL tags from every task at the given indices, persisting the changes at once.
+     * @param indices indices of tasks, in ascending order.
+     */
+    public void untagTasks(int[] indices) {
+        this.write(() -> {
+            ArrayList<Mutation> mutations = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                mutations.add(Mutation.untag(index));
+            }
+            this.change(mutations);
+        });
+    }
+
+    /**
+     * Reverses the most recent change that has not been undone, e.g. putting deleted tasks back where they were
+     * or giving untagged tasks their tags back. Only the changes made through this TaskList since it was loaded
+     * can be undone: changes made by other processes sharing the database clear the history.
+     * @return false if there is no change left to undo.
+     */
+    public boolean undo() {
+        return this.atomically(() -> {
+            Mutation[] undo = this.history.peekUndo();
+            if (undo == null) {
+                return false;
+            }
+            this.history.undone(this.applyAll(Arrays.asList(undo)));
+            return true;
+        });
+    }
+
+    /**
+     * Makes the most recently undone change again.
+     * @return false if there is no undone change left to redo, e.g. because another change was made since.
+     */
+    public boolean redo() {
+        return this.atomically(() -> {
+            Mutation[] redo = this.history.peekRedo();
+            if (redo == null) {
+                return false;
+            }
+            this.history.redone(this.applyAll(Arrays.asList(redo)));
+            return true;
+        });
+    }
+
+    /**
+     * Makes sure every change made so far has been written to the disk.
+     */
+    public void sync() {
+        this.lock.writeLock().lock();
         try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            Task t = tempDatabase.get(index);
-            t.tags.add(tag);
-            this.storage.updateFileContents(tempDatabase);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
+            this.storage.sync();
         } catch (IOException e) {
             throw new RuntimeException("Error updating database!");
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
     /**
-     * Clears ALL tags from the existing task
-     * @param index index of task
+     * Applies the changes other processes have made to the database, replaying them one by one where
+     * storage can tell what they were, and reloading every task otherwise.
      */
-    public void untagTask(int index) {
+    private void catchUp() {
+        List<Mutation> changes;
         try {
-            ArrayList<Task> tempDatabase = this.storage.getFileContents();
-            Task t = tempDatabase.get(index);
-            t.tags.clear();
-            this.storage.updateFileContents(tempDatabase);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File was not found!");
+            changes = this.storage.pollChanges();
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading database!");
+        }
+        if (changes == null) {
+            this.load();
+            return;
+        }
+        if (!changes.isEmpty()) {
+            // the changes recorded in the history may no longer refer to the same tasks
+            this.history.clear();
+        }
+        try {
+            for (Mutation change : changes) {
+                this.apply(change);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // the tasks in memory no longer match the database, so they are read afresh
+            this.load();
+        }
+    }
+
+    /**
+     * Makes changes to the in-memory tasks, writes them through to storage and records how to undo them.
+     */
+    private void change(List<Mutation> mutations) {
+        this.record(this.applyAll(mutations));
+    }
+
+    private void record(Mutation[] undo) {
+        if (undo.length > 0) {
+            this.history.record(undo);
+        }
+    }
+
+    /**
+     * Makes changes to the in-memory tasks and writes them through to storage.
+     * @return mutations reversing the changes, in the order they are to be applied.
+     */
+    private Mutation[] applyAll(List<Mutation> mutations) {
+        ArrayList<Mutation[]> inverses = new ArrayList<>(mutations.size());
+        int length = 0;
+        for (Mutation mutation : mutations) {
+            Mutation[] inverse = this.apply(mutation);
+            inverses.add(inverse);
+            length += inverse.length;
+        }
+        if (mutations.size() == 1) {
+            this.save(mutations.get(0));
+        } else {
+            this.saveAll(mutations);
+        }
+        // the last change is reversed first
+        Mutation[] undo = new Mutation[length];
+        for (Mutation[] inverse : inverses) {
+            length -= inverse.length;
+            System.arraycopy(inverse, 0, undo, length, inverse.length);
+        }
+        return undo;
+    }
+
+    /**
+     * Applies a change to the tasks in memory, without writing it to storage, e.g. one made by another process.
+     * @return mutations reversing the change, in the order they are to be applied.
+     */
+    private Mutation[] apply(Mutation change) {
+        int index = change.getIndex();
+        return switch (change.getKind()) {
+        case ADD -> {
+            Task t = change.getTask();
+            this.nextId = Math.max(this.nextId, t.id + 1);
+            this.indexTask(t);
+            this.tasks.add(t);
+            yield new Mutation[] {Mutation.delete(this.tasks.size() - 1)};
+        }
+        case INSERT -> {
+            // a copy, as the deleted task may still be read from snapshots taken before it was deleted
+            Task t = change.getTask().copy();
+            this.nextId = Math.max(this.nextId, t.id + 1);
+            this.indexTask(t);
+            this.tasks.insert(index, t);
+            yield new Mutation[] {Mutation.delete(index)};
+        }
+        case DELETE -> {
+            Task t = this.tasks.get(index);
+            this.tasks.removeAll(new int[] {index});
+            this.unindexTask(t);
+            yield new Mutation[] {Mutation.insert(index, t)};
+        }
+        case MARK, UNMARK -> {
+            boolean wasDone = this.tasks.get(index).isDone;
+            this.tasks.setDone(index, change.getKind() == Mutation.Kind.MARK);
+            yield new Mutation[] {wasDone ? Mutation.mark(index) : Mutation.unmark(index)};
+        }
+        case TAG -> {
+            Mutation[] undo = this.restoreTags(index);
+            String interned = this.tagIndex.intern(change.getTag());
+            this.tasks.addTag(index, interned);
+            this.tagIndex.add(interned, this.tasks.getId(index));
+            yield undo;
+        }
+        case UNTAG -> {
+            Mutation[] undo = this.restoreTags(index);
+            Task t = this.tasks.get(index);
+            for (String tag : t.tags) {
+                this.tagIndex.remove(tag, t.id);
+            }
+            this.tasks.clearTags(index);
+            yield undo;
+        }
+        };
+    }
+
+    /**
+     * @return mutations giving the task at the index back the tags it has now.
+     */
+    private Mutation[] restoreTags(int index) {
+        List<String> tags = this.tasks.get(index).tags;
+        Mutation[] undo = new Mutation[tags.size() + 1];
+        undo[0] = Mutation.untag(index);
+        for (int i = 0; i < tags.size(); i++) {
+            undo[i + 1] = Mutation.tag(index, tags.get(i));
+        }
+        return undo;
+    }
+
+    private void lockStorage() {
+        try {
+            this.storage.lock();
+        } catch (IOException e) {
+            throw new RuntimeException("Database was unable to be locked!");
+        }
+    }
+
+    private void unlockStorage() {
+        try {
+            this.storage.unlock();
+        } catch (IOException e) {
+            throw new RuntimeException("Database was unable to be unlocked!");
+        }
+    }
+
+    private <T> T read(Supplier<T> query) {
+        this.lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable change) {
+        this.atomically(() -> {
+            change.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param ids ids of tasks in the list.
+     * @return the tasks with those ids, in list order.
+     */
+    private ArrayList<Task> getTasksByIds(Collection<Integer> ids) {
+        int[] sorted = new int[ids.size()];
+        int count = 0;
+        for (int id : ids) {
+            sorted[count++] = id;
+        }
+        Arrays.sort(sorted);
+        ArrayList<Task> found = new ArrayList<>(sorted.length);
+        for (int id : sorted) {
+            found.add(this.tasks.getById(id));
+        }
+        return found;
+    }
+
+    private void indexTask(Task t) {
+        Integer id = t.id; // boxed once and shared by every index entry of the task
+        for (String word : t.name.split(" ")) {
+            if (!word.isEmpty()) {
+                this.keywordIndex.add(word.toLowerCase(Locale.ROOT), id);
+            }
+        }
+        for (int i = 0; i < t.tags.size(); i++) {
+            String tag = this.tagIndex.intern(t.tags.get(i));
+            t.tags.set(i, tag);
+            this.tagIndex.add(tag, id);
+        }
+        this.timeIndex.add(t);
+    }
+
+    private void unindexTask(Task t) {
+        for (String word : t.name.split(" ")) {
+            this.keywordIndex.remove(word.toLowerCase(Locale.ROOT), t.id);
+        }
+        for (String tag : t.tags) {
+            this.tagIndex.remove(tag, t.id);
+        }
+        this.timeIndex.remove(t);
+    }
+
+    /**
+     * Writes a change made to the in-memory tasks through to storage.
+     * @param mutation the change that was made.
+     */
+    private void save(Mutation mutation) {
+        try {
+            this.storage.commit(this.tasks.asList(), mutation);
+        } catch (IOException e) {
+            throw new RuntimeException("Error updating database!");
+        }
+    }
+
+    private void saveAll(List<Mutation> mutations) {
+        try {
+            this.storage.commitAll(this.tasks.asList(), mutations);
         } catch (IOException e) {
             throw new RuntimeException("Error updating database!");
         }
@@ -0,0 +1,295 @@
+package blob;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Keeps the TaskLists of many databases loaded at once, e.g. one per user of a BlobServer, within a budget
+ * of tasks held in memory. Whenever a list is released beyond the budget, the least recently used lists that are
+ * not in use are evicted: their storage is closed, which writes out any changes it was holding back, and they
+ * are loaded afresh the next time they are needed. A list whose changes cannot be written out is kept in memory
+ * (and handed to whoever asked for it meanwhile) rather than dropped, and is tried again at the next eviction.
+ * Each list counts as its number of tasks plus one, so a few huge lists take up as much of the budget as many
+ * small ones.
+ * Lists are loaded outside of the registry's lock, and a list asked for while it is being loaded is only
+ * loaded once, by whoever asked first. A list is not loaded again until its eviction has been written out.
+ * Every list handed out by acquire must be handed back with release once it is no longer in use.
+ */
+public class TaskListRegistry {
+    /**
+     * A database that is loaded or being loaded, with the number of callers using it.
+     */
+    private static class Entry {
+        private final String filePath;
+        private final CompletableFuture<TaskList> loaded = new CompletableFuture<>();
+        // completed with the entry itself if it could not be written out, and with null otherwise
+        private CompletableFuture<Entry> previousEviction;
+        private CompletableFuture<Entry> evicted;
+        private Storage storage;
+        private TaskList tasklist;
+        private int weight;
+        private int users;
+        private long lastUsedNanos;
+
+        Entry(String filePath) {
+            this.filePath = filePath;
+        }
+    }
+
+    private final Function<String, Storage> storages;
+    private final long maxWeight;
+    // in order of use, least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<String, CompletableFuture<Entry>> evictions = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictionCount;
+
+    /**
+     * @param storages function opening the storage of the database at a file path.
+     * @param maxWeight number of tasks (plus one per list) that may be held in memory before lists are evicted.
+     */
+    public TaskListRegistry(Function<String, Storage> storages, long maxWeight) {
+        this.storages = storages;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Hands out the TaskList of a database, loading it first if it is not in memory.
+     * It will not be evicted until every caller has released it.
+     * @param filePath path of the database, as given to the storage function.
+     * @return TaskList of the database.
+     */
+    public TaskList acquire(String filePath) {
+        Entry entry;
+        boolean isLoading;
+        synchronized (this) {
+            entry = this.entries.get(filePath);
+            isLoading = entry == null;
+            if (isLoading) {
+                this.misses++;
+                entry = new Entry(filePath);
+                entry.previousEviction = this.evictions.get(filePath);
+                this.entries.put(filePath, entry);
+            } else {
+                this.hits++;
+            }
+            entry.users++;
+        }
+        if (isLoading) {
+            this.load(entry);
+        }
+        try {
+            return entry.loaded.join();
+        } catch (CompletionException e) {
+            synchronized (this) {
+                entry.users--;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Hands back a TaskList given out by acquire, after which it may be evicted.
+     * @param filePath path of the database, as given to acquire.
+     * @throws RuntimeException if a list evicted to stay within budget could not be written out.
+     */
+    public void release(String filePath) {
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(filePath);
+            assert entry != null && entry.users > 0 : "TaskList was released more often than acquired!";
+        }
+        // weighed outside the lock, as the list may be busy with a change of another caller
+        int size = entry.tasklist.getSize();
+        List<Entry> evicted;
+        synchronized (this) {
+            entry.users--;
+            entry.lastUsedNanos = System.nanoTime();
+            this.reweigh(entry, size);
+            evicted = this.evictOverBudget();
+        }
+        this.close(evicted);
+    }
+
+    /**
+     * Evicts every list that is not in use and has not been used for the given time.
+     * @param idleNanos time in nanoseconds since a list was last released.
+     * @throws RuntimeException if a list could not be written out, in which case it stays in memory.
+     */
+    public void evictIdle(long idleNanos) {
+        long now = System.nanoTime();
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = this.entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (this.isEvictable(entry) && now - entry.lastUsedNanos >= idleNanos) {
+                    it.remove();
+                    evicted.add(this.markEvicted(entry));
+                }
+            }
+        }
+        this.close(evicted);
+    }
+
+    /**
+     * Evicts every list that is not in use, e.g. when shutting down.
+     * @throws RuntimeException if a list could not be written out, in which case it stays in memory.
+     */
+    public void evictAll() {
+        this.evictIdle(Long.MIN_VALUE);
+    }
+
+    /**
+     * @return number of lists held in memory or being loaded.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return number of tasks (plus one per list) held in memory, as last seen when the lists were released.
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * @return number of calls to acquire that found their list in memory or already being loaded.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return number of calls to acquire that had to load their list.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @return number of lists evicted so far.
+     */
+    public synchronized long getEvictions() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Loads the list of a new entry, once any earlier eviction of the same database has been written out.
+     * If that eviction failed, the evicted list is taken over instead, as the database lacks its changes.
+     * A list that fails to load is forgotten, so that the next caller tries again.
+     * Lists are only evicted on release, so that every list handed out is also handed back.
+     */
+    private void load(Entry entry) {
+        Storage storage;
+        TaskList tasklist;
+        try {
+            Entry unwritten = entry.previousEviction == null ? null : entry.previousEviction.join();
+            if (unwritten != null) {
+                storage = unwritten.storage;
+                tasklist = unwritten.tasklist;
+            } else {
+                storage = this.storages.apply(entry.filePath);
+                tasklist = new TaskList(storage);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                this.entries.remove(entry.filePath, entry);
+            }
+            entry.loaded.completeExceptionally(e);
+            return;
+        }
+        int size = tasklist.getSize();
+        synchronized (this) {
+            // only set under the lock, as a loaded list is what makes the entry evictable
+            entry.storage = storage;
+            entry.tasklist = tasklist;
+            this.reweigh(entry, size);
+        }
+        entry.loaded.complete(tasklist);
+    }
+
+    private void reweigh(Entry entry, int size) {
+        int newWeight = size + 1;
+        this.weight += newWeight - entry.weight;
+        entry.weight = newWeight;
+    }
+
+    /**
+     * Takes the least recently used lists that are not in use out of the registry until it is within budget.
+     * @return the evicted entries, to be closed once the lock is released.
+     */
+    private List<Entry> evictOverBudget() {
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Entry> it = this.entries.values().iterator();
+        while (this.weight > this.maxWeight && it.hasNext()) {
+            Entry entry = it.next();
+            if (this.isEvictable(entry)) {
+                it.remove();
+                evicted.add(this.markEvicted(entry));
+            }
+        }
+        return evicted;
+    }
+
+    private boolean isEvictable(Entry entry) {
+        return entry.users == 0 && entry.tasklist != null;
+    }
+
+    private Entry markEvicted(Entry entry) {
+        this.weight -= entry.weight;
+        this.evictionCount++;
+        entry.evicted = new CompletableFuture<>();
+        this.evictions.put(entry.filePath, entry.evicted);
+        return entry;
+    }
+
+    /**
+     * Closes the storage of evicted entries, writing out whatever it was holding back. Entries that cannot
+     * be written out are put back, or handed to the entry loading the same database meanwhile (see load).
+     * @throws RuntimeException if any entry could not be written out.
+     */
+    private void close(List<Entry> evicted) {
+        boolean isFailed = false;
+        for (Entry entry : evicted) {
+            boolean isClosed = false;
+            try {
+                entry.storage.close();
+                isClosed = true;
+            } catch (IOException e) {
+                isFailed = true;
+            }
+            synchronized (this) {
+                this.evictions.remove(entry.filePath, entry.evicted);
+                if (!isClosed) {
+                    this.restore(entry);
+                }
+            }
+            entry.evicted.complete(isClosed ? null : entry);
+        }
+        if (isFailed) {
+            throw new RuntimeException("Error updating database!");
+        }
+    }
+
+    /**
+     * Takes back an entry that could not be written out, unless the database is being loaded again already.
+     */
+    private void restore(Entry entry) {
+        this.evictionCount--;
+        if (!this.entries.containsKey(entry.filePath)) {
+            this.entries.put(entry.filePath, entry);
+            this.weight += entry.weight;
+        }
+    }
+}
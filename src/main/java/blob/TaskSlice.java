@@ -0,0 +1,82 @@
+package blob;
+
+import java.util.List;
+
+/**
+ * Consecutive tasks of a list, e.g. a page of a listing, together with the size the list had when
+ * they were taken. Tasks are looked up by their index in the whole list.
+ */
+public class TaskSlice {
+    private final int from;
+    private final int listSize;
+    private final List<Task> tasks;
+
+    /**
+     * @param from index in the list of the first task.
+     * @param listSize number of tasks in the whole list.
+     * @param tasks tasks from index from on.
+     */
+    public TaskSlice(int from, int listSize, List<Task> tasks) {
+        this.from = from;
+        this.listSize = listSize;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Takes up to limit tasks from offset on out of a list, cut short at its end.
+     * @param tasks tasks of the whole list.
+     * @param offset index of the first task wanted.
+     * @param limit maximum number of tasks wanted.
+     * @return slice of the list.
+     */
+    public static TaskSlice of(List<Task> tasks, int offset, int limit) {
+        int from = start(tasks.size(), offset);
+        return new TaskSlice(from, tasks.size(), tasks.subList(from, end(tasks.size(), from, limit)));
+    }
+
+    /**
+     * @return index of the first task of a slice from offset on, which is size if it lies beyond the list.
+     */
+    static int start(int size, int offset) {
+        return Math.min(offset, size);
+    }
+
+    /**
+     * @return index after the last task of a slice of up to limit tasks starting at from.
+     */
+    static int end(int size, int from, int limit) {
+        return (int) Math.min(size, (long) from + limit);
+    }
+
+    /**
+     * @return index in the list of the first task.
+     */
+    public int getFrom() {
+        return this.from;
+    }
+
+    /**
+     * @return index in the list after the last task.
+     */
+    public int getTo() {
+        return this.from + this.tasks.size();
+    }
+
+    /**
+     * @return number of tasks the whole list had when the slice was taken.
+     */
+    public int getListSize() {
+        return this.listSize;
+    }
+
+    /**
+     * @param index index in the list, from getFrom up to getTo.
+     * @return task at that index.
+     */
+    public Task get(int index) {
+        if (index < this.from || index >= this.getTo()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return this.tasks.get(index - this.from);
+    }
+}
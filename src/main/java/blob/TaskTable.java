@@ -0,0 +1,103 @@
+package blob;
+
+import java.util.List;
+
+/**
+ * Holds the tasks of a TaskList in list order.
+ * Tasks are only ever changed through the table, never through the Task objects it hands out:
+ * a table is free to return a fresh copy of a task (a view) from every call to get.
+ * ArrayTaskTable keeps the Task objects themselves, while ColumnarTaskTable keeps every field
+ * in its own primitive array and only creates Task objects when they are asked for.
+ */
+public interface TaskTable {
+    /**
+     * @return number of tasks in the table.
+     */
+    int size();
+
+    /**
+     * @param index index of task.
+     * @return Task at that index.
+     */
+    Task get(int index);
+
+    /**
+     * @param index index of task.
+     * @return id of the task at that index.
+     */
+    int getId(int index);
+
+    /**
+     * Changes the id of the task at the index. Ids must stay unique within the table.
+     * @param index index of task.
+     * @param id new id.
+     */
+    void setId(int index, int id);
+
+    /**
+     * @param id id of the task.
+     * @return Task with that id, or null if there is none.
+     */
+    Task getById(int id);
+
+    /**
+     * @param id id of the task.
+     * @return index of the task with that id, or -1 if there is none.
+     */
+    int indexOfId(int id);
+
+    /**
+     * Appends a task to the end of the table.
+     * @param t task to be added.
+     */
+    void add(Task t);
+
+    /**
+     * Inserts a task at an index, moving the tasks from there on back by one.
+     * The task's id must lie between those of its neighbours, so that the table stays sorted by id.
+     * @param index index the task will have, from 0 to size().
+     * @param t task to be inserted.
+     */
+    void insert(int index, Task t);
+
+    /**
+     * Removes every task at the given indices in a single pass.
+     * @param indices indices of tasks, in ascending order without duplicates.
+     */
+    void removeAll(int[] indices);
+
+    /**
+     * @param index index of task.
+     * @param isDone whether the task is completed.
+     */
+    void setDone(int index, boolean isDone);
+
+    /**
+     * @param index index of task.
+     * @param tag tag to be added to the task.
+     */
+    void addTag(int index, String tag);
+
+    /**
+     * @param index index of task.
+     */
+    void clearTags(int index);
+
+    /**
+     * Removes every task from the table.
+     */
+    void clear();
+
+    /**
+     * @return read-only list backed by the table, e.g. for handing the tasks to storage.
+     */
+    List<Task> asList();
+
+    /**
+     * Copies some of the tasks, e.g. so that a page of the list can be shown while the table changes.
+     * @param from index of the first task copied.
+     * @param to index after the last task copied.
+     * @return read-only list of the tasks from index from to index to, which stays as it is.
+     */
+    List<Task> snapshot(int from, int to);
+}
@@ -0,0 +1,166 @@
+package blob;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Orders Deadline and Event tasks by time so that they can be looked up by date.
+ * Deadlines and event starts are kept in sorted maps keyed on epoch seconds, and events are
+ * additionally kept in an IntervalTree for overlap queries. Every query takes O(log n + k) for k results.
+ * Tasks are held by id and only looked up (through the function given to the constructor) when returned.
+ */
+public class TimeIndex {
+    private TreeMap<Long, LinkedHashSet<Integer>> deadlines = new TreeMap<>();
+    private TreeMap<Long, LinkedHashSet<Integer>> eventStarts = new TreeMap<>();
+    private IntervalTree events = new IntervalTree();
+    private IntFunction<Task> tasksById;
+
+    /**
+     * @param tasksById function returning the task with a given id.
+     */
+    public TimeIndex(IntFunction<Task> tasksById) {
+        this.tasksById = tasksById;
+    }
+
+    /**
+     * Adds a task to the index. Tasks without a date (todos) are ignored.
+     * @param t task to be added.
+     */
+    public void add(Task t) {
+        if (t instanceof Deadline d) {
+            this.deadlines.computeIfAbsent(d.getDeadlineEpochSecond(), k -> new LinkedHashSet<>()).add(t.id);
+        } else if (t instanceof Event e) {
+            long start = e.getStartEpochSecond();
+            this.eventStarts.computeIfAbsent(start, k -> new LinkedHashSet<>()).add(t.id);
+            this.events.add(t.id, start, e.getEndEpochSecond());
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     * @param t task to be removed.
+     */
+    public void remove(Task t) {
+        if (t instanceof Deadline d) {
+            removeFrom(this.deadlines, d.getDeadlineEpochSecond(), t.id);
+        } else if (t instanceof Event e) {
+            removeFrom(this.eventStarts, e.getStartEpochSecond(), t.id);
+            this.events.remove(t.id);
+        }
+    }
+
+    /**
+     * @param from earliest deadline (inclusive).
+     * @param to latest deadline (exclusive).
+     * @return deadline tasks due within [from, to), earliest first.
+     */
+    public ArrayList<Task> getDeadlinesBetween(LocalDateTime from, LocalDateTime to) {
+        ArrayList<Task> found = new ArrayList<>();
+        for (LinkedHashSet<Integer> ids : this.deadlines
+                .subMap(toEpochSecond(from), true, toEpochSecond(to), false).values()) {
+            for (int id : ids) {
+                found.add(this.tasksById.apply(id));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param from start of the period (inclusive).
+     * @param to end of the period (exclusive).
+     * @return deadlines due within [from, to) and events overlapping it, ordered by deadline or start.
+     */
+    public ArrayList<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        ArrayList<Integer> overlappingIds = new ArrayList<>();
+        this.events.findOverlapping(toEpochSecond(from), toEpochSecond(to), overlappingIds);
+        ArrayList<Task> overlapping = new ArrayList<>(overlappingIds.size());
+        for (int id : overlappingIds) {
+            overlapping.add(this.tasksById.apply(id));
+        }
+        ArrayList<Task> due = this.getDeadlinesBetween(from, to);
+
+        ArrayList<Task> found = new ArrayList<>(due.size() + overlapping.size());
+        int i = 0;
+        int j = 0;
+        while (i < due.size() || j < overlapping.size()) {
+            if (j == overlapping.size()
+                    || (i < due.size() && timeOf(due.get(i)) <= timeOf(overlapping.get(j)))) {
+                found.add(due.get(i++));
+            } else {
+                found.add(overlapping.get(j++));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param now point in time from which to look ahead.
+     * @param count maximum number of tasks to return.
+     * @return the first count deadlines or event starts at or after now, earliest first.
+     */
+    public ArrayList<Task> getUpcoming(LocalDateTime now, int count) {
+        long from = toEpochSecond(now);
+        Iterator<Map.Entry<Long, LinkedHashSet<Integer>>> deadlineEntries =
+                this.deadlines.tailMap(from, true).entrySet().iterator();
+        Iterator<Map.Entry<Long, LinkedHashSet<Integer>>> eventEntries =
+                this.eventStarts.tailMap(from, true).entrySet().iterator();
+        Map.Entry<Long, LinkedHashSet<Integer>> deadline = deadlineEntries.hasNext() ? deadlineEntries.next() : null;
+        Map.Entry<Long, LinkedHashSet<Integer>> event = eventEntries.hasNext() ? eventEntries.next() : null;
+
+        ArrayList<Task> found = new ArrayList<>();
+        while (found.size() < count && (deadline != null || event != null)) {
+            if (event == null || (deadline != null && deadline.getKey() <= event.getKey())) {
+                this.addUpTo(found, deadline.getValue(), count);
+                deadline = deadlineEntries.hasNext() ? deadlineEntries.next() : null;
+            } else {
+                this.addUpTo(found, event.getValue(), count);
+                event = eventEntries.hasNext() ? eventEntries.next() : null;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Removes every task from the index.
+     */
+    public void clear() {
+        this.deadlines.clear();
+        this.eventStarts.clear();
+        this.events.clear();
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long timeOf(Task t) {
+        return t instanceof Deadline d ? d.getDeadlineEpochSecond() : ((Event) t).getStartEpochSecond();
+    }
+
+    private void addUpTo(ArrayList<Task> found, LinkedHashSet<Integer> ids, int count) {
+        for (int id : ids) {
+            if (found.size() == count) {
+                return;
+            }
+            found.add(this.tasksById.apply(id));
+        }
+    }
+
+    private static void removeFrom(NavigableMap<Long, LinkedHashSet<Integer>> map, long time, int id) {
+        LinkedHashSet<Integer> ids = map.get(time);
+        if (ids == null) {
+            return;
+        }
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            map.remove(time);
+        }
+    }
+}
@@ -13,19 +13,16 @@ public class Todo extends Task {
     }
 
     /**
-     * @return string representation of the task in the form "[T] ['completion status'] 'task name'".
+     * Appends the task in the form "[T]['completion status'] 'task name'",
+     * or "[T] ['completion status'] 'task name' - #tag1 #tag2..." if it has tags.
      */
     @Override
-    public String toString() {
-        if (this.tags.isEmpty()) {
-            return "[T]" + "[" + this.check() + "] " + this.name;
+    public void appendTo(StringBuilder s) {
+        s.append("[T]");
+        if (!this.tags.isEmpty()) {
+            s.append(' ');
         }
-        StringBuilder tags = new StringBuilder("");
-        for (int i = 0; i < this.tags.size(); i++) {
-            String tag = this.tags.get(i);
-            tags.append("#" + tag + " ");
-        }
-        return "[T] [" + this.check() + "] " + this.name + " - " + tags.toString();
+        super.appendTo(s);
     }
 }
 
@@ -1,10 +1,5 @@
 package blob;
 
-import javafx.scene.image.Image;
-import javafx.scene.layout.VBox;
-
-import java.util.Scanner;
-
 /**
  * Responsible for initalising all other related objects.
  * Responsible for hosting conversation.
@@ -16,39 +11,31 @@ public class Ui {
     public final String UNKNOWN_COMMAND_MSG = "ERROR! Unknown command!";
     private Parser parser;
     private TaskList tasklist;
-    private Image userImg;
-    private Image blobImg;
 
-    public Ui(TaskList tasklist, Image userImg, Image blobImg) {
+    public Ui(TaskList tasklist) {
         this.tasklist = tasklist;
         this.parser = new Parser();
-        this.userImg = userImg;
-        this.blobImg = blobImg;
     }
 
     /**
      * Begins conversation with user
+     * @return the message Blob opens the conversation with.
      */
-    public void initialise(VBox dialogContainer) {
-        String startMsg = "Hello! I'm Blob! What can I do for you?";
-        addBlobMsg(dialogContainer,startMsg);
+    public String initialise() {
+        return "Hello! I'm Blob! What can I do for you?";
     }
 
     /**
-     *
-     * @param dialogContainer container containing all dialogue between Blob and user
-     * @param msg String message to be displayed
+     * Maintains constant conversation with user.
      */
-    public void addBlobMsg(VBox dialogContainer, String msg) {
-        dialogContainer.getChildren().addAll(
-                DialogBox.getBlobDialog(msg, blobImg)
-        );
+    public String converse(String humanInput) {
+        return parser.evaluateAction(this, tasklist, humanInput);
     }
 
     /**
-     * Maintains constant conversation with user.
+     * Maintains constant conversation with user, writing each reply into the sink as it is produced.
      */
-    public String converse(VBox dialogContainer, String humanInput) {
-        return parser.evaluateAction(this, tasklist, humanInput);
+    public void converse(String humanInput, ReplySink sink) {
+        parser.evaluateAction(tasklist, humanInput, sink);
     }
 }
@@ -0,0 +1,102 @@
+package blob;
+
+/**
+ * Remembers the most recent changes made to a TaskList so that they can be undone and redone.
+ * Every change is kept as the mutations reversing it (e.g. putting a deleted task back at its index,
+ * or giving an untagged task its old tags again), never as a copy of the list, so a step costs the same
+ * whatever the size of the list. Steps are kept in a ring buffer of fixed capacity: once it is full,
+ * recording a change forgets the oldest one.
+ * Undoing a step replaces it by the mutations redoing it, and redoing it puts back those undoing it,
+ * so the steps that can be undone and those that can be redone share the buffer. Recording a new change
+ * forgets every step that could be redone.
+ */
+public class UndoHistory {
+    private final Mutation[][] steps;
+    private int oldest;
+    private int undoable;
+    private int redoable;
+
+    /**
+     * @param capacity maximum number of steps remembered.
+     */
+    public UndoHistory(int capacity) {
+        assert capacity > 0 : "History must have room for at least one step!";
+        this.steps = new Mutation[capacity][];
+    }
+
+    /**
+     * Remembers a change that was just made.
+     * @param undo mutations reversing the change, in the order they are to be applied.
+     */
+    public void record(Mutation[] undo) {
+        this.forgetRedoable();
+        if (this.undoable == this.steps.length) {
+            this.oldest = this.slot(1);
+            this.undoable--;
+        }
+        this.steps[this.slot(this.undoable)] = undo;
+        this.undoable++;
+    }
+
+    /**
+     * @return mutations reversing the most recent change, or null if there is nothing to undo.
+     */
+    public Mutation[] peekUndo() {
+        return this.undoable == 0 ? null : this.steps[this.slot(this.undoable - 1)];
+    }
+
+    /**
+     * @return mutations making the most recently undone change again, or null if there is nothing to redo.
+     */
+    public Mutation[] peekRedo() {
+        return this.redoable == 0 ? null : this.steps[this.slot(this.undoable)];
+    }
+
+    /**
+     * Marks the step returned by peekUndo as undone.
+     * @param redo mutations making the change again, in the order they are to be applied.
+     */
+    public void undone(Mutation[] redo) {
+        assert this.undoable > 0 : "There is nothing to undo!";
+        this.undoable--;
+        this.redoable++;
+        this.steps[this.slot(this.undoable)] = redo;
+    }
+
+    /**
+     * Marks the step returned by peekRedo as redone.
+     * @param undo mutations reversing the change again, in the order they are to be applied.
+     */
+    public void redone(Mutation[] undo) {
+        assert this.redoable > 0 : "There is nothing to redo!";
+        this.steps[this.slot(this.undoable)] = undo;
+        this.undoable++;
+        this.redoable--;
+    }
+
+    /**
+     * Forgets every step, e.g. once the list has been changed in a way the steps know nothing about.
+     */
+    public void clear() {
+        this.forgetRedoable();
+        for (int i = 0; i < this.undoable; i++) {
+            this.steps[this.slot(i)] = null;
+        }
+        this.undoable = 0;
+    }
+
+    private void forgetRedoable() {
+        for (int i = 0; i < this.redoable; i++) {
+            // dropped so that the tasks they hold (e.g. of additions that were undone) can be collected
+            this.steps[this.slot(this.undoable + i)] = null;
+        }
+        this.redoable = 0;
+    }
+
+    /**
+     * @return position in the buffer of the step the given number of steps after the oldest.
+     */
+    private int slot(int offset) {
+        return (this.oldest + offset) % this.steps.length;
+    }
+}
@@ -0,0 +1,72 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BlobServerTest {
+    @TempDir
+    Path tempDir;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void requests_keepUsersApartAndSurviveEviction() throws IOException, InterruptedException {
+        BlobServer server = new BlobServer(0, tempDir, Duration.ZERO);
+        server.start();
+        try {
+            String base = "http://localhost:" + server.getPort() + "/users/";
+            HttpResponse<String> added = this.post(base + "alice/commands", "deadline essay \"draft\" /by 2099-03-02 12:00");
+            assertEquals(200, added.statusCode());
+            assertTrue(added.body().startsWith("{\"reply\":\"Got it. I've added this task:\\n"), added.body());
+            this.post(base + "alice/commands", "tag 1 impt");
+            this.post(base + "Bob/commands", "todo read book");
+
+            assertEquals("{\"total\":1,\"offset\":0,\"tasks\":[{\"id\":1,\"type\":\"D\",\"name\":\"essay \\\"draft\\\"\","
+                    + "\"done\":false,\"tags\":[\"impt\"],\"by\":\"2099-03-02T12:00\"}]}",
+                    this.get(base + "alice/tasks").body());
+            assertEquals("{\"impt\":1}", this.get(base + "alice/tags").body());
+            assertEquals(1, this.countTasks(this.get(base + "bob/tasks?find=Book").body()));
+            assertEquals(0, this.countTasks(this.get(base + "bob/tasks?offset=5").body()));
+            assertEquals(2, server.getResidentUsers());
+
+            // a handler releases its user's tasks only once the reply has been sent
+            for (int i = 0; i < 100 && server.getResidentUsers() > 0; i++) {
+                server.evictIdle();
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getResidentUsers());
+            assertEquals(1, this.countTasks(this.get(base + "alice/tasks?tag=impt").body()));
+
+            assertEquals(400, this.get(base + "../tasks").statusCode());
+            assertEquals(404, this.get(base + "alice/commands").statusCode());
+            assertEquals(400, this.get(base + "alice/tasks?limit=many").statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private int countTasks(String json) {
+        return json.split("\\{\"id\":", -1).length - 1;
+    }
+
+    private HttpResponse<String> get(String uri) throws IOException, InterruptedException {
+        return this.client.send(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String uri, String command) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .POST(HttpRequest.BodyPublishers.ofString(command)).build();
+        return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,55 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CliTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void run_executesScriptAndSavesOnClose() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        Cli cli = new Cli(filePath, 0);
+        String script = "todo read book\n\ntodo buy eggs\nmark 1\n";
+
+        assertEquals(3, cli.run(new BufferedReader(new StringReader(script)), new StringWriter()));
+        assertEquals(0, new CsvStorage(filePath).getFileContents().size());
+        cli.close();
+
+        TaskList saved = new TaskList(new CsvStorage(filePath));
+        assertEquals(2, saved.getSize());
+        assertEquals("[T][X] read book", saved.getTask(0).toString());
+    }
+
+    @Test
+    public void groupCommit_writesEveryChangeByClose() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        Cli cli = Cli.groupCommit(filePath, "2, 60000", new ArrayTaskTable());
+        String script = "todo read book\ntodo buy eggs\ntodo call home\n";
+
+        assertEquals(3, cli.run(new BufferedReader(new StringReader(script)), new StringWriter()));
+        // the third change waits for a batch that never fills, so it is only written on close
+        cli.close();
+        assertEquals(3, new TaskList(new CsvStorage(filePath)).getSize());
+    }
+
+    @Test
+    public void run_stopsAtBye() throws IOException {
+        Cli cli = new Cli(tempDir.resolve("database.csv").toString(), 0);
+        StringWriter out = new StringWriter();
+        String script = "todo read book\nbye\ntodo never run\n";
+
+        assertEquals(2, cli.run(new BufferedReader(new StringReader(script)), out));
+        assertEquals(true, out.toString().endsWith("Bye. Hope to see you again soon!\n"));
+        cli.close();
+    }
+}
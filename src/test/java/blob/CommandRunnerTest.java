@@ -0,0 +1,61 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class CommandRunnerTest {
+    @Test
+    public void submit_repliesInSubmissionOrder() throws InterruptedException {
+        List<String> replies = new ArrayList<>();
+        CommandRunner runner = new CommandRunner((command, sink) -> {
+            sink.write(command.toUpperCase());
+            sink.write("!");
+        }, Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            runner.submit("command" + i, replies::add, () -> replies.add("/"));
+        }
+        runner.close();
+
+        assertEquals(300, replies.size());
+        assertEquals(List.of("COMMAND0", "!", "/"), replies.subList(0, 3));
+        assertEquals("COMMAND99", replies.get(297));
+    }
+
+    @Test
+    public void cancel_stopsRunningAndWaitingCommands() throws InterruptedException {
+        List<String> replies = new ArrayList<>();
+        CountDownLatch isStarted = new CountDownLatch(1);
+        CommandRunner runner = new CommandRunner((command, sink) -> {
+            isStarted.countDown();
+            while (true) {
+                CommandRunner.checkCancelled();
+                Thread.onSpinWait();
+            }
+        }, Runnable::run);
+        runner.submit("list", replies::add, () -> { });
+        runner.submit("find book", replies::add, () -> { });
+        isStarted.await();
+        runner.cancel();
+        runner.close();
+
+        assertEquals(List.of(CommandRunner.CANCELLED_MSG, CommandRunner.CANCELLED_MSG), replies);
+    }
+
+    @Test
+    public void submit_repliesWithErrorWhenCommandFails() throws InterruptedException {
+        List<String> replies = new ArrayList<>();
+        CommandRunner runner = new CommandRunner((command, sink) -> {
+            throw command.equals("bug") ? new NullPointerException() : new RuntimeException("Error updating database!");
+        }, Runnable::run);
+        runner.submit("bug", replies::add, () -> { });
+        runner.submit("todo read book", replies::add, () -> { });
+        runner.close();
+
+        assertEquals(List.of(CommandRunner.ERROR_MSG, "Error updating database!"), replies);
+    }
+}
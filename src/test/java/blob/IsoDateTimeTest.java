@@ -0,0 +1,38 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IsoDateTimeTest {
+    @Test
+    public void parseAndAppend_agreeWithLocalDateTime() {
+        Random random = new Random(16);
+        for (int i = 0; i < 10_000; i++) {
+            long epochSecond = random.nextLong(-62_000_000_000L, 253_000_000_000L);
+            if (random.nextBoolean()) {
+                epochSecond -= Math.floorMod(epochSecond, 60);
+            }
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            StringBuilder s = new StringBuilder();
+            IsoDateTime.appendIso(s, epochSecond);
+
+            assertEquals(dateTime.toString(), s.toString());
+            assertEquals(epochSecond, IsoDateTime.parseEpochSecond(dateTime.toString()));
+        }
+    }
+
+    @Test
+    public void parseEpochSecond_rejectsInvalidDates() {
+        assertThrows(DateTimeParseException.class, () -> IsoDateTime.parseEpochSecond("2023-02-29T10:00"));
+        assertThrows(DateTimeParseException.class, () -> IsoDateTime.parseEpochSecond("2024-09-10 13:00"));
+        assertEquals(LocalDateTime.parse("2024-02-29T23:59").toEpochSecond(ZoneOffset.UTC),
+                IsoDateTime.parseEpochSecond("2024-02-29T23:59"));
+    }
+}
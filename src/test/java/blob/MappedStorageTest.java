@@ -0,0 +1,92 @@
+package blob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class MappedStorageTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void commit_changesArePersistedAcrossReopen() throws IOException {
+        String filePath = tempDir.resolve("database.bin").toString();
+        MappedStorage storage = new MappedStorage(filePath);
+        TaskList tasklist = new TaskList(storage);
+        for (int i = 0; i < 3; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+        }
+        tasklist.addTask(new Deadline("submit", false, "2099-01-01T10:00", new ArrayList<String>()));
+        tasklist.markTask(2);
+        tasklist.tagTask(2, "impt");
+        tasklist.deleteTask(0);
+        storage.close();
+
+        MappedStorage reopened = new MappedStorage(filePath);
+        assertEquals(3, reopened.getSize());
+        assertEquals("[T][ ] task1", reopened.readTask(0).toString());
+        assertEquals("[T] [X] task2 - #impt ", reopened.readTask(1).toString());
+        assertEquals("2099-01-01T10:00", ((Deadline) reopened.readTask(2)).getDeadline().toString());
+        assertEquals(4, reopened.readTask(2).getId());
+        reopened.close();
+    }
+
+    @Test
+    public void exportCsv_roundTripsThroughCsvFormat() throws IOException {
+        String csvPath = tempDir.resolve("database.csv").toString();
+        TaskList csvTasks = new TaskList(new CsvStorage(csvPath));
+        csvTasks.addTask(new Event("exam", true, "2099-05-01T09:00", "2099-05-01T11:00", new ArrayList<String>()));
+        csvTasks.tagTask(0, "school");
+
+        MappedStorage storage = new MappedStorage(tempDir.resolve("database.bin").toString());
+        storage.importCsv(csvPath);
+        String exportPath = tempDir.resolve("export.csv").toString();
+        storage.exportCsv(exportPath);
+        storage.close();
+
+        assertEquals(csvTasks.getTask(0).toString(), new CsvStorage(exportPath).getFileContents().get(0).toString());
+    }
+
+    @Test
+    public void updateFileContents_replacesDatabaseWholeOrNotAtAll() throws IOException {
+        Path database = tempDir.resolve("database.bin");
+        MappedStorage storage = new MappedStorage(database.toString());
+        TaskList tasklist = new TaskList(storage);
+        for (int i = 0; i < 4; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+        }
+        tasklist.deleteTasks(new int[] {0, 2});
+        storage.close();
+        assertFalse(Files.exists(tempDir.resolve("database.bin.tmp")));
+        assertFalse(Files.exists(tempDir.resolve("database.bin.tmp.heap")));
+
+        // a rewrite cut short before the heap was moved leaves the old database
+        Files.writeString(tempDir.resolve("database.bin.tmp"), "partial");
+        Files.writeString(tempDir.resolve("database.bin.tmp.heap"), "partial");
+        MappedStorage reopened = new MappedStorage(database.toString());
+        assertEquals(2, reopened.getSize());
+        assertEquals("[T][ ] task3", reopened.readTask(1).toString());
+        reopened.close();
+        assertFalse(Files.exists(tempDir.resolve("database.bin.tmp")));
+
+        // one cut short after the heap was moved is finished
+        MappedStorage other = new MappedStorage(tempDir.resolve("other.bin").toString());
+        other.updateFileContents(List.of(new Todo("new", true, new ArrayList<String>())));
+        other.close();
+        Files.copy(tempDir.resolve("other.bin"), tempDir.resolve("database.bin.tmp"));
+        Files.copy(tempDir.resolve("other.bin.heap"), tempDir.resolve("database.bin.heap"),
+                StandardCopyOption.REPLACE_EXISTING);
+        reopened = new MappedStorage(database.toString());
+        assertEquals(1, reopened.getSize());
+        assertEquals("[T][X] new", reopened.readTask(0).toString());
+        reopened.close();
+    }
+}
@@ -0,0 +1,156 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParserTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void tokenize_splitsOnWhitespaceAndReplacesCommas() {
+        String[] tokens = Parser.tokenize("  todo\tbuy eggs,  milk ");
+        assertEquals(4, tokens.length);
+        assertEquals("todo", tokens[0]);
+        assertEquals("buy", tokens[1]);
+        assertEquals("eggs\0", tokens[2]);
+        assertEquals("milk", tokens[3]);
+        assertEquals(0, Parser.tokenize("   ").length);
+    }
+
+    @Test
+    public void evaluateAction_dispatchesToRegisteredCommands() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        parser.registerCommand("count", (list, arr) -> String.valueOf(list.getSize()));
+
+        parser.evaluateAction(null, tasklist, "TODO read   a book");
+        assertEquals("read a book", tasklist.getTask(0).name);
+        assertEquals("1", parser.evaluateAction(null, tasklist, "count"));
+        assertEquals("ERROR! Unknown Command!", parser.evaluateAction(null, tasklist, "fly"));
+        assertEquals("ERROR! Unknown Command!", parser.evaluateAction(null, tasklist, ""));
+    }
+
+    @Test
+    public void undo_putsBackDeletedTaskUntilRedone() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        assertEquals("There is nothing to undo!", parser.evaluateAction(tasklist, "undo"));
+        parser.evaluateAction(tasklist, "todo read book");
+        parser.evaluateAction(tasklist, "delete 1");
+
+        assertEquals("OK, I've undone your last change.", parser.evaluateAction(tasklist, "undo"));
+        assertEquals("read book", tasklist.getTask(0).name);
+        assertEquals("OK, I've redone your last undone change.", parser.evaluateAction(tasklist, "redo"));
+        assertEquals(0, tasklist.getSize());
+        assertEquals("There is nothing to redo!", parser.evaluateAction(tasklist, "redo"));
+    }
+
+    @Test
+    public void list_showsOnlyTheRequestedPage() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        for (int i = 1; i <= 120; i++) {
+            parser.evaluateAction(tasklist, "todo task " + i);
+        }
+
+        String page = parser.evaluateAction(tasklist, "list page 3");
+        assertTrue(page.startsWith("Here are the tasks in your list:\n101. [T][ ] task 101\n"));
+        assertTrue(page.endsWith("120. [T][ ] task 120\nShowing tasks 101 to 120 of 120."));
+        assertEquals("Here are the tasks in your list:\n4. [T][ ] task 4\n5. [T][ ] task 5\n"
+                + "Showing tasks 4 to 5 of 120.", parser.evaluateAction(tasklist, "list --limit 2 --offset 3"));
+        assertEquals("Here are the matching tasks in your list:\n1. [T][ ] task 1\nShowing tasks 1 to 1 of 120.",
+                parser.evaluateAction(tasklist, "find task --limit 1"));
+        assertEquals("Invalid Command!", parser.evaluateAction(tasklist, "list --limit"));
+    }
+
+    @Test
+    public void list_copiesOnlyTheRequestedPageAfterAChange() {
+        int[] copied = new int[1];
+        int[] read = new int[1];
+        ColumnarTaskTable table = new ColumnarTaskTable() {
+            @Override
+            public Task get(int index) {
+                read[0]++;
+                return super.get(index);
+            }
+
+            @Override
+            public List<Task> snapshot(int from, int to) {
+                copied[0] += to - from;
+                return super.snapshot(from, to);
+            }
+        };
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()), table);
+        Parser parser = new Parser();
+        for (int i = 1; i <= 500; i++) {
+            parser.evaluateAction(tasklist, "todo task " + i);
+        }
+        parser.evaluateAction(tasklist, "list");
+
+        parser.evaluateAction(tasklist, "mark 250");
+        copied[0] = 0;
+        read[0] = 0;
+        String page = parser.evaluateAction(tasklist, "list --limit 20");
+        assertTrue(page.endsWith("20. [T][ ] task 20\nShowing tasks 1 to 20 of 500."));
+        assertEquals(20, copied[0]);
+        assertEquals(0, read[0]);
+        // a listing of the whole list is shared by later pages until the next change
+        parser.evaluateAction(tasklist, "list");
+        assertTrue(parser.evaluateAction(tasklist, "list page 5").contains("250. [T][X] task 250\n"));
+        assertEquals(520, copied[0]);
+    }
+
+    @Test
+    public void evaluateAction_streamsLongListsInParts() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        for (int i = 1; i <= 2000; i++) {
+            parser.evaluateAction(tasklist, "todo task " + i);
+        }
+
+        List<String> parts = new ArrayList<>();
+        parser.evaluateAction(tasklist, "list", part -> parts.add(part.toString()));
+        assertTrue(parts.size() > 1);
+        assertEquals(parser.evaluateAction(tasklist, "list"), String.join("", parts));
+    }
+
+    @Test
+    public void bulkCommands_applyToEverySelectedTask() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        for (int i = 1; i <= 10; i++) {
+            parser.evaluateAction(tasklist, "todo task " + i);
+        }
+
+        assertEquals("Nice! I've marked 5 tasks as done.", parser.evaluateAction(tasklist, "mark 1-3,7,3-4"));
+        assertEquals("OK, I've tagged 5 tasks with #old.", parser.evaluateAction(tasklist, "tag done old"));
+        assertEquals("There is no task at task number '11'", parser.evaluateAction(tasklist, "delete 9-11"));
+        assertEquals("Invalid Command!", parser.evaluateAction(tasklist, "delete 4-2"));
+        assertEquals("Noted, I've removed 5 tasks.\nNow you have 5 tasks in the list.",
+                parser.evaluateAction(tasklist, "delete #old"));
+        assertEquals("There are no tasks matching 'done'!", parser.evaluateAction(tasklist, "unmark done"));
+        assertEquals("[T][ ] task 5", tasklist.getTask(0).toString());
+    }
+
+    @Test
+    public void idAddressing_picksTasksRegardlessOfPosition() {
+        TaskList tasklist = new TaskList(new CsvStorage(this.tempDir.resolve("tasks.csv").toString()));
+        Parser parser = new Parser();
+        parser.evaluateAction(tasklist, "todo first");
+        parser.evaluateAction(tasklist, "todo second");
+        parser.evaluateAction(tasklist, "delete 1");
+
+        assertEquals("Nice! I've marked this task as done:\n[T][X] second", parser.evaluateAction(tasklist, "mark @2"));
+        assertEquals("There is no task with id '1'", parser.evaluateAction(tasklist, "mark @1"));
+        assertEquals("Here are the tasks in your list:\n1. @2 [T][X] second\n",
+                parser.evaluateAction(tasklist, "list /ids"));
+    }
+}
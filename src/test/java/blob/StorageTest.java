@@ -1,13 +1,20 @@
 package blob;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class StorageTest {
-    private Storage storage = new Storage("./src/test/java/blob/StorageTest.csv");
+    private CsvStorage storage = new CsvStorage("./src/test/java/blob/StorageTest.csv");
+
+    @TempDir
+    Path tempDir;
 
     @Test
     public void getFileContents_gives_arrayWithSize1() {
@@ -26,4 +33,89 @@ public class StorageTest {
             throw new RuntimeException("Failed to retrieve info");
         }
     }
+
+    @Test
+    public void getFileContents_replaysJournal() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage journaled = new CsvStorage(filePath);
+        journaled.enableJournal(100);
+        ArrayList<Task> tasks = journaled.getFileContents();
+        for (Mutation m : new Mutation[] {
+                Mutation.add(new Todo("first", false, new ArrayList<String>())),
+                Mutation.add(new Todo("second", false, new ArrayList<String>())),
+                Mutation.mark(1), Mutation.tag(1, "impt"), Mutation.delete(0)}) {
+            m.applyTo(tasks);
+            journaled.commit(tasks, m);
+        }
+
+        ArrayList<Task> reloaded = new CsvStorage(filePath).getFileContents();
+        assertEquals(1, reloaded.size());
+        assertEquals("[T] [X] second - #impt ", reloaded.get(0).toString());
+    }
+
+    @Test
+    public void commit_compactsJournalIntoDatabase() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage journaled = new CsvStorage(filePath);
+        journaled.enableJournal(2);
+        ArrayList<Task> tasks = journaled.getFileContents();
+        for (int i = 0; i < 3; i++) {
+            Mutation m = Mutation.add(new Todo("task" + i, false, new ArrayList<String>()));
+            m.applyTo(tasks);
+            journaled.commit(tasks, m);
+        }
+
+        assertEquals(3, Files.readAllLines(Path.of(filePath)).size());
+        assertEquals(3, new CsvStorage(filePath).getFileContents().size());
+    }
+
+    @Test
+    public void groupCommit_writesBatchOnSync() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage batched = new CsvStorage(filePath);
+        batched.enableGroupCommit(1000, 60_000);
+        ArrayList<Task> tasks = batched.getFileContents();
+        for (int i = 0; i < 5; i++) {
+            Mutation m = Mutation.add(new Todo("task" + i, false, new ArrayList<String>()));
+            m.applyTo(tasks);
+            batched.commit(tasks, m);
+        }
+        assertEquals(0, new CsvStorage(filePath).getFileContents().size());
+
+        batched.sync();
+        assertEquals(5, new CsvStorage(filePath).getFileContents().size());
+        batched.close();
+    }
+
+    @Test
+    public void deferredWrites_persistAtCheckpointsAndSync() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage deferred = new CsvStorage(filePath);
+        deferred.enableDeferredWrites(3);
+        ArrayList<Task> tasks = deferred.getFileContents();
+        for (int i = 0; i < 5; i++) {
+            Mutation m = Mutation.add(new Todo("task" + i, false, new ArrayList<String>()));
+            m.applyTo(tasks);
+            deferred.commit(tasks, m);
+        }
+        assertEquals(3, new CsvStorage(filePath).getFileContents().size());
+
+        deferred.sync();
+        assertEquals(5, new CsvStorage(filePath).getFileContents().size());
+    }
+
+    @Test
+    public void forEachTask_streamsRowsWithTags() throws IOException {
+        Path database = tempDir.resolve("database.csv");
+        Files.writeString(database, "type,is_checked,task_name,time1,time2,tags\r\n"
+                + "T,1,read book,NA,NA,fun,impt\r\n"
+                + "\r\n"
+                + "T,0,sleep,NA,NA,");
+        ArrayList<String> visited = new ArrayList<>();
+        new CsvStorage(database.toString()).forEachTask(t -> visited.add(t.toString()));
+
+        assertEquals(2, visited.size());
+        assertEquals("[T] [X] read book - #fun #impt ", visited.get(0));
+        assertEquals("[T][ ] sleep", visited.get(1));
+    }
 }
@@ -0,0 +1,173 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TaskListRegistryTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void acquire_evictsLeastRecentlyUsedAndWritesItOut() {
+        TaskListRegistry registry = new TaskListRegistry(this::openDeferred, 5);
+        String alice = tempDir.resolve("alice.csv").toString();
+        String bob = tempDir.resolve("bob.csv").toString();
+
+        TaskList tasks = registry.acquire(alice);
+        tasks.addTask(new Todo("essay", false, new ArrayList<>()));
+        tasks.addTask(new Todo("read", false, new ArrayList<>()));
+        registry.release(alice);
+        assertEquals(3, registry.getWeight());
+
+        tasks = registry.acquire(bob);
+        tasks.addTask(new Todo("call", false, new ArrayList<>()));
+        tasks.addTask(new Todo("run", false, new ArrayList<>()));
+        registry.release(bob);
+        // 6 is over budget, so alice's list, used longest ago, is written out and evicted
+        assertEquals(1, registry.size());
+        assertEquals(3, registry.getWeight());
+        assertEquals(2, registry.getMisses());
+        assertEquals(1, registry.getEvictions());
+
+        assertEquals(2, registry.acquire(alice).getSize());
+        registry.release(alice);
+        assertEquals(3, registry.getMisses());
+        assertEquals(2, registry.getEvictions());
+        assertEquals(0, registry.getHits());
+
+        registry.evictAll();
+        assertEquals(0, registry.size());
+        assertEquals(2, new TaskList(new CsvStorage(bob)).getSize());
+    }
+
+    @Test
+    public void acquire_loadsEachDatabaseOnceWhenAskedConcurrently() throws InterruptedException {
+        AtomicInteger opened = new AtomicInteger();
+        CountDownLatch isOpening = new CountDownLatch(1);
+        CountDownLatch mayOpen = new CountDownLatch(1);
+        TaskListRegistry registry = new TaskListRegistry(filePath -> {
+            opened.incrementAndGet();
+            isOpening.countDown();
+            await(mayOpen);
+            return new CsvStorage(filePath);
+        }, 100);
+        String alice = tempDir.resolve("alice.csv").toString();
+
+        TaskList[] found = new TaskList[4];
+        Thread[] threads = new Thread[found.length];
+        for (int i = 0; i < threads.length; i++) {
+            int j = i;
+            threads[i] = new Thread(() -> found[j] = registry.acquire(alice));
+            threads[i].start();
+            if (i == 0) {
+                isOpening.await();
+            }
+        }
+        mayOpen.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, opened.get());
+        for (TaskList tasks : found) {
+            assertEquals(found[0], tasks);
+        }
+        assertEquals(1, registry.getMisses());
+        assertEquals(3, registry.getHits());
+
+        for (int i = 0; i < threads.length; i++) {
+            registry.release(alice);
+        }
+        registry.evictAll();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void evictAll_keepsListWhoseChangesCannotBeWrittenOut() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger(2);
+        Semaphore isClosing = new Semaphore(0);
+        Semaphore mayFail = new Semaphore(0);
+        TaskListRegistry registry = new TaskListRegistry(filePath -> {
+            CsvStorage storage = new CsvStorage(filePath) {
+                @Override
+                public synchronized void close() throws IOException {
+                    if (failures.getAndDecrement() > 0) {
+                        isClosing.release();
+                        mayFail.acquireUninterruptibly();
+                        throw new IOException("Disk is full!");
+                    }
+                    super.close();
+                }
+            };
+            storage.enableDeferredWrites(0);
+            return storage;
+        }, 100);
+        String alice = tempDir.resolve("alice.csv").toString();
+
+        TaskList tasks = registry.acquire(alice);
+        tasks.addTask(new Todo("essay", false, new ArrayList<>()));
+        registry.release(alice);
+
+        // the first failure puts the list back, as nobody asked for it meanwhile
+        mayFail.release();
+        assertThrows(RuntimeException.class, registry::evictAll);
+        assertEquals(1, registry.size());
+        assertEquals(0, registry.getEvictions());
+        assertSame(tasks, registry.acquire(alice));
+        registry.release(alice);
+        isClosing.drainPermits();
+
+        // the second failure hands the list to the caller that asked for it while it was being written out
+        RuntimeException[] thrown = new RuntimeException[1];
+        Thread evictor = new Thread(() -> {
+            try {
+                registry.evictAll();
+            } catch (RuntimeException e) {
+                thrown[0] = e;
+            }
+        });
+        evictor.start();
+        isClosing.acquire();
+        TaskList[] found = new TaskList[1];
+        Thread reader = new Thread(() -> found[0] = registry.acquire(alice));
+        reader.start();
+        while (registry.getMisses() < 2) {
+            Thread.sleep(1);
+        }
+        mayFail.release();
+        evictor.join();
+        reader.join();
+        assertNotNull(thrown[0]);
+        assertSame(tasks, found[0]);
+        registry.release(alice);
+
+        registry.evictAll();
+        assertEquals(0, registry.size());
+        assertEquals(1, new TaskList(new CsvStorage(alice)).getSize());
+    }
+
+    private Storage openDeferred(String filePath) {
+        CsvStorage storage = new CsvStorage(filePath);
+        storage.enableDeferredWrites(0);
+        return storage;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package blob;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class TaskListTest {
 
-    private TaskList tl = new TaskList(new Storage("./src/test/java/blob/TaskListTest.csv"));
+    private TaskList tl = new TaskList(new CsvStorage("./src/test/java/blob/TaskListTest.csv"));
+
+    @TempDir
+    Path tempDir;
 
     @Test
     public void deleteTask_throwsException_fromEmptyCSVFile() {
@@ -27,4 +42,344 @@ public class TaskListTest {
             assertEquals("Exception thrown!", "Exception thrown!");
         }
     }
+
+    @Test
+    public void addTask_writesThroughToStorage() {
+        String filePath = tempDir.resolve("database.csv").toString();
+        TaskList tasklist = new TaskList(new CsvStorage(filePath));
+        tasklist.addTask(new Todo("read book", false, new ArrayList<String>()));
+        tasklist.markTask(0);
+
+        TaskList reloaded = new TaskList(new CsvStorage(filePath));
+        assertEquals(1, reloaded.getSize());
+        assertEquals("[T][X] read book", reloaded.getTask(0).toString());
+    }
+
+    @Test
+    public void deleteTasks_removesSelectedTasksAndPersistsThroughJournal() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage storage = new CsvStorage(filePath);
+        storage.enableJournal(1000);
+        TaskList tasklist = new TaskList(storage);
+        for (int i = 0; i < 6; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+        }
+        tasklist.markTasks(new int[] {1, 4});
+        ArrayList<Task> removed = tasklist.deleteTasks(tasklist.selectTasks(t -> t.isDone));
+
+        assertEquals(2, removed.size());
+        assertEquals(4, tasklist.getSize());
+        assertEquals(0, tasklist.findTasks(List.of("task4"), true).size());
+        TaskList reloaded = new TaskList(new CsvStorage(filePath));
+        assertEquals(4, reloaded.getSize());
+        assertEquals("[T][ ] task5", reloaded.getTask(3).toString());
+        storage.close();
+    }
+
+    @Test
+    public void addTask_assignsIdsThatSurviveDeletesAndReloads() throws IOException {
+        Path database = tempDir.resolve("database.csv");
+        // a database written before tasks had ids
+        Files.writeString(database, "type,is_checked,task_name,time1,time2,tags\nT,0,old1,NA,NA,\nT,1,old2,NA,NA,\n");
+        TaskList tasklist = new TaskList(new CsvStorage(database.toString()));
+        assertEquals(2, tasklist.getTask(1).getId());
+
+        tasklist.deleteTask(0);
+        tasklist.addTask(new Todo("new", false, new ArrayList<String>()));
+        assertEquals(3, tasklist.getTask(1).getId());
+        assertEquals(1, tasklist.indexOfId(3));
+
+        TaskList reloaded = new TaskList(new CsvStorage(database.toString()));
+        assertEquals("[T][X] old2", reloaded.getTaskById(2).toString());
+        assertEquals("[T][ ] new", reloaded.getTaskById(3).toString());
+        assertEquals(null, reloaded.getTaskById(1));
+        assertTrue(Files.readString(database).startsWith("id,type,"));
+    }
+
+    @Test
+    public void indexOfId_returnsMinusOneForMissingIdsAndSortsHandEditedDatabase() throws IOException {
+        Path database = tempDir.resolve("database.csv");
+        StringBuilder csv = new StringBuilder("id,type,is_checked,task_name,time1,time2,tags\n");
+        // edited by hand: the first two tasks are out of id order, and every tenth id is missing
+        csv.append("2,T,0,task 2,NA,NA,\n1,T,0,task 1,NA,NA,\n");
+        for (int id = 3; id <= 100_000; id++) {
+            if (id % 10 != 0) {
+                csv.append(id).append(",T,0,task ").append(id).append(",NA,NA,\n");
+            }
+        }
+        Files.writeString(database, csv);
+
+        ColumnarTaskTable table = new ColumnarTaskTable();
+        TaskList tasklist = new TaskList(new CsvStorage(database.toString()), table);
+        assertEquals(1, tasklist.getTask(0).getId());
+        assertEquals(1, tasklist.indexOfId(2));
+        assertEquals(89_999, tasklist.indexOfId(99_999));
+        assertEquals(-1, table.indexOfId(50_000));
+        assertEquals(-1, table.indexOfId(999_999));
+        assertEquals(-1, table.indexOfId(0));
+        assertTrue(Files.readString(database).contains("\n1,T,0,task 1,NA,NA,\n2,T,"));
+    }
+
+    @Test
+    public void addTask_neverReusesIdOfDeletedHighestTask() throws IOException {
+        List<Function<String, Storage>> storages = List.of(CsvStorage::new, filePath -> {
+            CsvStorage storage = new CsvStorage(filePath);
+            try {
+                storage.enableJournal(1000);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return storage;
+        }, MappedStorage::new);
+        for (int i = 0; i < storages.size(); i++) {
+            String filePath = tempDir.resolve("database" + i).toString();
+            Storage storage = storages.get(i).apply(filePath);
+            TaskList tasklist = new TaskList(storage);
+            tasklist.addTask(new Todo("a", false, new ArrayList<String>()));
+            tasklist.addTask(new Todo("b", false, new ArrayList<String>()));
+            tasklist.deleteTask(1);
+            storage.close();
+
+            storage = storages.get(i).apply(filePath);
+            tasklist = new TaskList(storage);
+            tasklist.addTask(new Todo("c", false, new ArrayList<String>()));
+            assertEquals(3, tasklist.getTask(1).getId(), "storage " + i);
+            // the next id also survives the log being compacted into the database
+            tasklist.deleteTask(1);
+            storage.updateFileContents(tasklist.snapshot());
+            storage.close();
+            tasklist = new TaskList(storages.get(i).apply(filePath));
+            tasklist.addTask(new Todo("d", false, new ArrayList<String>()));
+            assertEquals(4, tasklist.getTask(1).getId(), "storage " + i);
+        }
+    }
+
+    @Test
+    public void columnarTable_behavesLikeTaskObjects() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        TaskList tasklist = new TaskList(new CsvStorage(filePath), new ColumnarTaskTable());
+        tasklist.addTask(new Todo("read book", false, new ArrayList<String>()));
+        tasklist.addTask(new Deadline("essay", false, "2099-03-02T12:00", new ArrayList<String>()));
+        tasklist.addTask(new Event("camp", false, "2099-02-27T09:00", "2099-03-03T18:00", new ArrayList<String>()));
+        tasklist.addTask(new Todo("return book", false, new ArrayList<String>()));
+        tasklist.tagTasks(new int[] {0, 2}, "impt");
+        tasklist.markTask(1);
+        tasklist.deleteTask(3);
+
+        TaskList reloaded = new TaskList(new CsvStorage(filePath));
+        assertEquals(tasklist.getSize(), reloaded.getSize());
+        for (int i = 0; i < reloaded.getSize(); i++) {
+            assertEquals(reloaded.getTask(i).toString(), tasklist.getTask(i).toString());
+            assertEquals(reloaded.getTask(i).getId(), tasklist.getTask(i).getId());
+        }
+        assertEquals("[D][X] essay (by: Mar 2 12:00)", tasklist.getTaskById(2).toString());
+        assertEquals(2, tasklist.getTasksWithTag("impt").size());
+        assertEquals("camp", tasklist.findTasks(List.of("camp"), true).get(0).name);
+        assertEquals("camp", tasklist.getUpcomingTasks(LocalDateTime.parse("2099-01-01T00:00"), 1).get(0).name);
+
+        TaskList columnar = new TaskList(new CsvStorage(filePath), new ColumnarTaskTable());
+        columnar.untagTask(0);
+        assertEquals("[T][ ] read book", columnar.getTask(0).toString());
+        assertEquals(1, columnar.getTasksWithTag("impt").size());
+    }
+
+    @Test
+    public void findTasks_matchesAllOrAnyKeywords() {
+        TaskList tasklist = new TaskList(new CsvStorage(tempDir.resolve("database.csv").toString()));
+        tasklist.addTask(new Todo("CS2100 Assignment", false, new ArrayList<String>()));
+        tasklist.addTask(new Todo("ST2334 assignment", false, new ArrayList<String>()));
+        tasklist.addTask(new Todo("CS2100 Quiz", false, new ArrayList<String>()));
+        tasklist.deleteTask(1);
+
+        assertEquals(1, tasklist.findTasks(List.of("assignment", "cs2100"), true).size());
+        assertEquals(2, tasklist.findTasks(List.of("Quiz", "assignment"), false).size());
+        assertEquals(0, tasklist.findTasks(List.of("ST2334"), false).size());
+    }
+
+    @Test
+    public void tagTask_keepsTagIndexInSync() {
+        TaskList tasklist = new TaskList(new CsvStorage(tempDir.resolve("database.csv").toString()));
+        for (int i = 0; i < 3; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+            tasklist.tagTask(i, new String("impt"));
+        }
+        tasklist.untagTask(0);
+        tasklist.deleteTask(1);
+
+        assertEquals(1, tasklist.getTasksWithTag("impt").size());
+        assertEquals(1, (int) tasklist.getTagCounts().get("impt"));
+        tasklist.addTask(new Todo("task3", false, new ArrayList<String>()));
+        tasklist.tagTask(2, new String("impt"));
+        assertTrue(tasklist.getTask(1).tags.get(0) == tasklist.getTask(2).tags.get(0));
+    }
+
+    @Test
+    public void getTasksBetween_returnsDeadlinesAndOverlappingEvents() {
+        TaskList tasklist = new TaskList(new CsvStorage(tempDir.resolve("database.csv").toString()));
+        ArrayList<String> noTags = new ArrayList<>();
+        tasklist.addTask(new Deadline("essay", false, "2099-03-02T12:00", new ArrayList<String>(noTags)));
+        tasklist.addTask(new Event("camp", false, "2099-02-27T09:00", "2099-03-03T18:00", new ArrayList<String>(noTags)));
+        tasklist.addTask(new Event("talk", false, "2099-03-05T09:00", "2099-03-05T10:00", new ArrayList<String>(noTags)));
+        tasklist.addTask(new Deadline("report", false, "2099-03-09T12:00", new ArrayList<String>(noTags)));
+
+        LocalDateTime from = LocalDateTime.parse("2099-03-01T00:00");
+        LocalDateTime to = LocalDateTime.parse("2099-03-06T00:00");
+        ArrayList<Task> found = tasklist.getTasksBetween(from, to);
+        assertEquals(3, found.size());
+        assertEquals("camp", found.get(0).name);
+        assertEquals("essay", found.get(1).name);
+        assertEquals("talk", found.get(2).name);
+
+        tasklist.deleteTask(1);
+        assertEquals(2, tasklist.getTasksBetween(from, to).size());
+        assertEquals(1, tasklist.getTasksDueBetween(from, to).size());
+        assertEquals("report", tasklist.getUpcomingTasks(from, 3).get(2).name);
+    }
+
+    @Test
+    public void concurrentCommands_loseNoChanges() throws InterruptedException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        TaskList tasklist = new TaskList(new CsvStorage(filePath));
+        Parser parser = new Parser();
+        ConcurrentLinkedQueue<String> problems = new ConcurrentLinkedQueue<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            String name = "writer" + w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    Todo todo = new Todo(name + " " + i, false, new ArrayList<String>());
+                    // another writer adding in between would have its task marked instead
+                    tasklist.atomically(() -> {
+                        tasklist.addTask(todo);
+                        tasklist.markTask(tasklist.getSize() - 1);
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                int lastSize = 0;
+                for (int i = 0; i < 200; i++) {
+                    List<Task> snapshot = tasklist.snapshot();
+                    if (snapshot.size() < lastSize) {
+                        problems.add("snapshot shrank");
+                    }
+                    for (int j = 1; j < snapshot.size(); j++) {
+                        if (snapshot.get(j - 1).getId() >= snapshot.get(j).getId()) {
+                            problems.add("ids out of order");
+                        }
+                    }
+                    lastSize = snapshot.size();
+                    parser.evaluateAction(tasklist, "list");
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), List.copyOf(problems));
+        assertEquals(200, tasklist.getSize());
+        assertEquals(200, tasklist.selectTasks(t -> t.isDone).length);
+        TaskList reloaded = new TaskList(new CsvStorage(filePath));
+        assertEquals(200, reloaded.selectTasks(t -> t.isDone).length);
+    }
+
+    @Test
+    public void sharedDatabase_catchesUpWithOtherInstances() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage first = new CsvStorage(filePath);
+        first.enableJournal(4);
+        first.enableSharedMode();
+        TaskList mine = new TaskList(first);
+        CsvStorage second = new CsvStorage(filePath);
+        second.enableJournal(4);
+        second.enableSharedMode();
+        TaskList theirs = new TaskList(second);
+
+        mine.addTask(new Todo("read book", false, new ArrayList<String>()));
+        theirs.refresh();
+        assertEquals("[T][ ] read book", theirs.getTask(0).toString());
+
+        // each change catches up first, so the task added here gets the next id rather than a clash
+        theirs.addTask(new Todo("return book", false, new ArrayList<String>()));
+        mine.markTask(1);
+        assertEquals(2, mine.getTask(1).getId());
+        // the fourth change compacts the log into the database, which the other instance then reloads in full
+        theirs.tagTask(0, "impt");
+        mine.refresh();
+        assertEquals("[T][X] return book", theirs.getTaskById(2).toString());
+        assertEquals(1, mine.getTasksWithTag("impt").size());
+
+        mine.deleteTask(0);
+        theirs.refresh();
+        assertEquals(1, theirs.getSize());
+        assertEquals(1, new TaskList(new CsvStorage(filePath)).getSize());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void undo_reversesDeletesAndUntagsAndPersistsThroughJournal() throws IOException {
+        String filePath = tempDir.resolve("database.csv").toString();
+        CsvStorage storage = new CsvStorage(filePath);
+        storage.enableJournal(1000);
+        TaskList tasklist = new TaskList(storage);
+        for (int i = 0; i < 5; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+        }
+        tasklist.tagTask(2, "impt");
+        tasklist.tagTask(2, "exam");
+        tasklist.untagTask(2);
+        tasklist.deleteTasks(new int[] {1, 3});
+
+        assertTrue(tasklist.undo());
+        assertEquals("[T][ ] task3", tasklist.getTask(3).toString());
+        assertEquals(4, tasklist.getTask(3).getId());
+        assertEquals(1, tasklist.findTasks(List.of("task1"), true).size());
+        assertTrue(tasklist.undo());
+        assertEquals(List.of("impt", "exam"), tasklist.getTask(2).tags);
+        assertEquals(1, tasklist.getTasksWithTag("exam").size());
+
+        assertTrue(tasklist.redo());
+        assertEquals(0, tasklist.getTagCounts().size());
+        // a new change forgets the deletion that could still have been redone
+        tasklist.markTask(0);
+        assertFalse(tasklist.redo());
+
+        TaskList reloaded = new TaskList(new CsvStorage(filePath));
+        assertEquals(5, reloaded.getSize());
+        for (int i = 0; i < reloaded.getSize(); i++) {
+            assertEquals(tasklist.getTask(i).toString(), reloaded.getTask(i).toString());
+            assertEquals(i + 1, reloaded.getTask(i).getId());
+        }
+        storage.close();
+    }
+
+    @Test
+    public void undo_forgetsChangesBeyondHistoryAndWorksOnColumnarTable() {
+        TaskList tasklist = new TaskList(new CsvStorage(tempDir.resolve("database.csv").toString()),
+                new ColumnarTaskTable());
+        for (int i = 0; i < 102; i++) {
+            tasklist.addTask(new Todo("task" + i, false, new ArrayList<String>()));
+        }
+        tasklist.deleteTask(50);
+        assertTrue(tasklist.undo());
+        assertEquals("[T][ ] task50", tasklist.getTask(50).toString());
+        assertEquals(51, tasklist.getTask(50).getId());
+
+        int undone = 0;
+        while (tasklist.undo()) {
+            undone++;
+        }
+        // 100 changes are remembered, one of which was the deletion already undone
+        assertEquals(99, undone);
+        assertEquals(3, tasklist.getSize());
+        assertTrue(tasklist.redo());
+        assertEquals("[T][ ] task3", tasklist.getTask(3).toString());
+    }
 }
@@ -0,0 +1,35 @@
+package blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskTest {
+    @Test
+    public void toString_rendersEveryTaskType() {
+        assertEquals("[T][ ] read", new Todo("read", false, new ArrayList<String>()).toString());
+        assertEquals("[T] [X] read - #fun #home ",
+                new Todo("read", true, new ArrayList<>(List.of("fun", "home"))).toString());
+        assertEquals("[D][ ] submit (by: Jan 2 09:05) - #work ",
+                new Deadline("submit", false, "2099-01-02T09:05", new ArrayList<>(List.of("work"))).toString());
+        assertEquals("[E][X] exam (from: Dec 31 23:00 to: Jan 1 01:30)",
+                new Event("exam", true, "2099-12-31T23:00", "2100-01-01T01:30", new ArrayList<String>()).toString());
+    }
+
+    @Test
+    public void appendTo_formatsDatesLikeDateTimeFormatter() {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("MMM d HH:mm");
+        LocalDateTime time = LocalDateTime.parse("2099-01-01T00:00");
+        for (int i = 0; i < 400; i++) {
+            StringBuilder s = new StringBuilder();
+            new Deadline("x", false, time.toString(), new ArrayList<String>()).appendTo(s);
+            assertEquals("[D][ ] x (by: " + time.format(format) + ")", s.toString());
+            time = time.plusHours(23).plusMinutes(7);
+        }
+    }
+}